@@ -0,0 +1,136 @@
+package mfo.bench;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.net.CookieHandler;
+
+/**
+ * Gọi ResponseParser / RequestEncoder của app. Code app nằm ở default package nên không import được từ đây
+ * (JMH không cho benchmark ở default package), gọi qua MethodHandle static final: JIT inline như gọi trực tiếp.
+ */
+final class Current {
+
+    private static final MethodHandle PARSE;
+    private static final MethodHandle NEW_PARSER;
+    private static final MethodHandle FEED;
+    private static final MethodHandle FINISH;
+    private static final MethodHandle STATE;
+    private static final MethodHandle SIGN_DAY;
+    private static final MethodHandle TOKEN;
+    private static final MethodHandle USER_ID;
+
+    private static final MethodHandle LOGIN_BODY;
+    private static final MethodHandle SIGN_IN_LIST_BODY;
+    private static final MethodHandle SIGNIN_BODY;
+    private static final MethodHandle TASK_BODY;
+
+    private static final Constructor<?> ACCOUNT;
+    private static final Constructor<?> SESSION;
+
+    static {
+        try {
+            Class<?> parser = Class.forName("ResponseParser");
+            Class<?> encoder = Class.forName("RequestEncoder");
+            Class<?> account = Class.forName("Account");
+            Class<?> session = Class.forName("Session");
+
+            PARSE = handle(parser, "parse", byte[].class).asType(MethodType.methodType(Object.class, byte[].class));
+            Constructor<?> newParser = parser.getDeclaredConstructor();
+            newParser.setAccessible(true);
+            NEW_PARSER = MethodHandles.lookup().unreflectConstructor(newParser).asType(MethodType.methodType(Object.class));
+            FEED = handle(parser, "feed", byte[].class, int.class, int.class)
+                    .asType(MethodType.methodType(void.class, Object.class, byte[].class, int.class, int.class));
+            FINISH = handle(parser, "finish").asType(MethodType.methodType(void.class, Object.class));
+            STATE = handle(parser, "state").asType(MethodType.methodType(int.class, Object.class));
+            SIGN_DAY = handle(parser, "signDay").asType(MethodType.methodType(int.class, Object.class));
+            TOKEN = handle(parser, "token").asType(MethodType.methodType(String.class, Object.class));
+            USER_ID = handle(parser, "userId").asType(MethodType.methodType(String.class, Object.class));
+
+            MethodHandle toBytes = handle(encoder, "toByteArray");
+            LOGIN_BODY = MethodHandles.filterReturnValue(handle(encoder, "login", account, String.class), toBytes)
+                    .asType(MethodType.methodType(byte[].class, Object.class, String.class));
+            SIGN_IN_LIST_BODY = MethodHandles.filterReturnValue(handle(encoder, "signInList", session), toBytes)
+                    .asType(MethodType.methodType(byte[].class, Object.class));
+            SIGNIN_BODY = MethodHandles.filterReturnValue(handle(encoder, "signin", session, int.class, int.class), toBytes)
+                    .asType(MethodType.methodType(byte[].class, Object.class, int.class, int.class));
+            TASK_BODY = MethodHandles.filterReturnValue(handle(encoder, "task", session), toBytes)
+                    .asType(MethodType.methodType(byte[].class, Object.class));
+
+            ACCOUNT = account.getDeclaredConstructor(String.class, String.class);
+            SESSION = session.getDeclaredConstructor(account, String.class, String.class, CookieHandler.class);
+            SESSION.setAccessible(true);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private Current() {
+    }
+
+    private static MethodHandle handle(Class<?> owner, String name, Class<?>... params) throws ReflectiveOperationException {
+        Method m = owner.getDeclaredMethod(name, params);
+        m.setAccessible(true);
+        return MethodHandles.lookup().unreflect(m);
+    }
+
+    // ================= PARSE =================
+    static Object parse(byte[] body) throws Throwable {
+        return (Object) PARSE.invokeExact(body);
+    }
+
+    /**
+     * Parse theo từng chunk như khi body đến dần từ socket
+     */
+    static Object parseChunked(byte[] body, int chunk) throws Throwable {
+        Object p = (Object) NEW_PARSER.invokeExact();
+        for (int off = 0; off < body.length; off += chunk) {
+            FEED.invokeExact(p, body, off, Math.min(chunk, body.length - off));
+        }
+        FINISH.invokeExact(p);
+        return p;
+    }
+
+    static int state(Object parser) throws Throwable {
+        return (int) STATE.invokeExact(parser);
+    }
+
+    static int signDay(Object parser) throws Throwable {
+        return (int) SIGN_DAY.invokeExact(parser);
+    }
+
+    static String token(Object parser) throws Throwable {
+        return (String) TOKEN.invokeExact(parser);
+    }
+
+    static String userId(Object parser) throws Throwable {
+        return (String) USER_ID.invokeExact(parser);
+    }
+
+    // ================= BODY =================
+    static Object account(String username, String password) throws ReflectiveOperationException {
+        return ACCOUNT.newInstance(username, password);
+    }
+
+    static Object session(Object account, String token, String userId) throws ReflectiveOperationException {
+        return SESSION.newInstance(account, token, userId, null);
+    }
+
+    static byte[] loginBody(Object account, String captcha) throws Throwable {
+        return (byte[]) LOGIN_BODY.invokeExact(account, captcha);
+    }
+
+    static byte[] signInListBody(Object session) throws Throwable {
+        return (byte[]) SIGN_IN_LIST_BODY.invokeExact(session);
+    }
+
+    static byte[] signinBody(Object session, int dateNo, int type) throws Throwable {
+        return (byte[]) SIGNIN_BODY.invokeExact(session, dateNo, type);
+    }
+
+    static byte[] taskBody(Object session) throws Throwable {
+        return (byte[]) TASK_BODY.invokeExact(session);
+    }
+}
@@ -0,0 +1,109 @@
+package mfo.bench;
+
+/**
+ * Bản copy nguyên văn cách parse / build body cũ của MfoApi (trước ResponseParser / RequestEncoder), làm mốc so sánh
+ */
+final class Legacy {
+
+    private Legacy() {
+    }
+
+    // ================= PARSE =================
+    static String extract(String json, String key) {
+        int i = json.indexOf(key);
+        if (i < 0) return "";
+        return json.substring(json.indexOf(":", i) + 1).split("[,}]")[0].replaceAll("[\" ]", "");
+    }
+
+    static String extractJsonObject(String json, String key) {
+        int i = json.indexOf("\"" + key + "\"");
+        if (i < 0) return "";
+        int start = json.indexOf("{", i);
+        if (start < 0) return "";
+        int end = start;
+        int count = 1; // đếm số ngoặc
+        while (count > 0 && ++end < json.length()) {
+            char c = json.charAt(end);
+            if (c == '{') count++;
+            else if (c == '}') count--;
+        }
+        return json.substring(start, end + 1);
+    }
+
+    /**
+     * Phần parse signDay của getSignInDay() cũ
+     */
+    static int signInDay(String json) {
+        String dataSection = extractJsonObject(json, "data");
+        if (dataSection.contains("signDay")) {
+            String dayStr = dataSection.substring(dataSection.indexOf("signDay") + 9).split("[,}]")[0].replaceAll("[\" ]", "");
+            return Integer.parseInt(dayStr) + 1;
+        }
+        return -1;
+    }
+
+    /**
+     * Chuỗi contains() của doLogin() cũ
+     *
+     * @return 0 = OK, 1 = sai captcha, 2 = sai mật khẩu, 3 = lỗi khác
+     */
+    static int loginState(String json) {
+        if (json.contains("\"state\":100002")) return 1;
+        else if (json.contains("\"state\":500")) return 2;
+        else if (!json.contains("\"state\":200")) return 3;
+        return 0;
+    }
+
+    /**
+     * Chuỗi contains() của doSignin() cũ
+     */
+    static boolean signinAccepted(String json) {
+        if (json.contains("\"state\":200")) return true;
+        else if (json.contains("\"state\":100024")) return true;
+        else return json.contains("\"state\":10002") || json.contains("\"state\":100007");
+    }
+
+    // ================= BODY =================
+    static String loginBody(String username, String password, String captcha) {
+        return """
+                {
+                  "username":"%s",
+                  "password":"%s",
+                  "code":"%s",
+                  "type":1,
+                  "source":"web"
+                }
+                """.formatted(username, password, captcha);
+    }
+
+    static String signInListBody(String userId) {
+        return """
+                {
+                  "activityName": "signin",
+                  "userId": %s,
+                  "platForm": "web"
+                }
+                """.formatted(userId);
+    }
+
+    static String signinBody(int dateNo, String userId, int type) {
+        return """
+                {
+                  "dateNo": %d,
+                  "userId": %s,
+                  "platForm":"web",
+                  "signInType": %d
+                }
+                """.formatted(dateNo, userId, type);
+    }
+
+    static String taskBody(String userId) {
+        return """
+                {
+                  "taskId":1,
+                  "platForm":"web",
+                  "userId":%s
+                }
+                """.formatted(userId);
+    }
+}
@@ -0,0 +1,51 @@
+package mfo.bench;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Response mẫu dựng theo cấu trúc response của mfapi (field thừa, chữ Unicode, token JWT dài như thật).
+ * getSignInList trả kèm danh sách cả tháng nên là body lớn nhất trong một lượt chạy.
+ * Thay bằng body bắt được từ server nếu cần số liệu sát hơn.
+ */
+final class Payloads {
+
+    static final String LOGIN_OK = "{\"state\":200,\"msg\":\"登录成功\",\"data\":{"
+            + "\"token\":\"eyJhbGciOiJIUzI1NiJ9.eyJ1c2VySWQiOjM4MTUyNjQ3LCJpYXQiOjE3NjA3NTY0MDAsImV4cCI6MTc2MDg0MjgwMH0"
+            + ".q0W3mZ8x1c6bYpQkT2vN9aR7sLfE4uJhD5gKiO0tXyA\","
+            + "\"userId\":38152647,\"nickName\":\"Người chơi 2647\",\"avatar\":\"https://img.818long.com/avatar/default/7.png\","
+            + "\"vipLevel\":3,\"balance\":\"0.00\",\"isBindPhone\":false,\"lastLoginTime\":\"2026-10-17 21:04:11\"},"
+            + "\"time\":1760756400123}";
+
+    static final String SIGN_IN_LIST = signInList(12, 31);
+
+    static final String SIGNIN_OK = "{\"state\":200,\"msg\":\"签到成功\",\"data\":{\"dateNo\":13,\"prizeNum\":10,\"prizeType\":\"diamond\"},\"time\":1760756400456}";
+
+    static final String SIGNIN_ALREADY = "{\"state\":100007,\"msg\":\"今日已签到\",\"data\":null,\"time\":1760756400456}";
+
+    static final String TASK_OK = "{\"state\":200,\"msg\":\"success\",\"data\":{\"taskId\":1,\"prizeNum\":20,\"prizeType\":\"diamond\"},\"time\":1760756400789}";
+
+    private Payloads() {
+    }
+
+    static byte[] bytes(String json) {
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Danh sách điểm danh cả tháng: mỗi ngày một object kèm phần thưởng, signDay nằm sau list
+     */
+    private static String signInList(int signDay, int days) {
+        StringBuilder sb = new StringBuilder("{\"state\":200,\"msg\":\"success\",\"data\":{\"activityName\":\"signin\",")
+                .append("\"month\":\"202610\",\"list\":[");
+        for (int d = 1; d <= days; d++) {
+            if (d > 1) sb.append(',');
+            sb.append("{\"dateNo\":").append(d)
+                    .append(",\"status\":").append(d <= signDay ? 1 : 0)
+                    .append(",\"signInType\":").append(d == 5 ? 2 : 1)
+                    .append(",\"prize\":{\"prizeType\":\"diamond\",\"prizeNum\":").append(d % 7 == 0 ? 50 : 10)
+                    .append(",\"icon\":\"https://img.818long.com/signin/diamond.png\"}}");
+        }
+        return sb.append("],\"fullPrize\":{\"prizeType\":\"diamond\",\"prizeNum\":300,\"received\":false},")
+                .append("\"signDay\":").append(signDay).append("},\"time\":1760756400321}").toString();
+    }
+}
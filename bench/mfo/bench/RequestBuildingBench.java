@@ -0,0 +1,83 @@
+package mfo.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Build body request: text block + {@code String.formatted} + getBytes (cách cũ) so với RequestEncoder ghi thẳng
+ * vào buffer của thread. Bản encoder đo qua {@code toByteArray()} (có copy, như đường async); đường chặn còn
+ * bỏ được bước copy này.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class RequestBuildingBench {
+
+    private static final String USERNAME = "nguyenvana2647";
+    private static final String PASSWORD = "Matkhau@2024";
+    private static final String CAPTCHA = "8k3m";
+    private static final String USER_ID = "38152647";
+
+    private Object account;
+    private Object session;
+
+    @Setup
+    public void setup() throws ReflectiveOperationException {
+        account = Current.account(USERNAME, PASSWORD);
+        session = Current.session(account, "eyJhbGciOiJIUzI1NiJ9.token", USER_ID);
+    }
+
+    @Benchmark
+    public byte[] loginLegacy() {
+        return Legacy.loginBody(USERNAME, PASSWORD, CAPTCHA).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] loginEncoder() throws Throwable {
+        return Current.loginBody(account, CAPTCHA);
+    }
+
+    @Benchmark
+    public byte[] signInListLegacy() {
+        return Legacy.signInListBody(USER_ID).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] signInListEncoder() throws Throwable {
+        return Current.signInListBody(session);
+    }
+
+    @Benchmark
+    public byte[] signinLegacy() {
+        return Legacy.signinBody(13, USER_ID, 1).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] signinEncoder() throws Throwable {
+        return Current.signinBody(session, 13, 1);
+    }
+
+    @Benchmark
+    public byte[] taskLegacy() {
+        return Legacy.taskBody(USER_ID).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] taskEncoder() throws Throwable {
+        return Current.taskBody(session);
+    }
+}
@@ -0,0 +1,99 @@
+package mfo.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parse response: cách cũ (decode String rồi contains / indexOf / split / replaceAll, như BodyHandlers.ofString
+ * + extract) so với ResponseParser quét thẳng trên byte. Bản {@code legacy*} tính cả bước decode UTF-8
+ * vì đó là chi phí thật của đường cũ.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ResponseParsingBench {
+
+    private final byte[] login = Payloads.bytes(Payloads.LOGIN_OK);
+    private final byte[] signInList = Payloads.bytes(Payloads.SIGN_IN_LIST);
+    private final byte[] signinAlready = Payloads.bytes(Payloads.SIGNIN_ALREADY);
+    private final byte[] task = Payloads.bytes(Payloads.TASK_OK);
+
+    /**
+     * Kích thước chunk khi body đến dần (HttpClient thường đẩy từng buffer vài KB)
+     */
+    @Param({"256"})
+    public int chunk;
+
+    // ================= LOGIN: state + token + userId =================
+    @Benchmark
+    public void loginLegacy(Blackhole bh) {
+        String json = new String(login, StandardCharsets.UTF_8);
+        bh.consume(Legacy.loginState(json));
+        bh.consume(Legacy.extract(json, "token"));
+        bh.consume(Legacy.extract(json, "userId"));
+    }
+
+    @Benchmark
+    public void loginParser(Blackhole bh) throws Throwable {
+        Object p = Current.parse(login);
+        bh.consume(Current.state(p));
+        bh.consume(Current.token(p));
+        bh.consume(Current.userId(p));
+    }
+
+    // ================= getSignInList: data.signDay =================
+    @Benchmark
+    public int signInListLegacy() {
+        return Legacy.signInDay(new String(signInList, StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public int signInListParser() throws Throwable {
+        return Current.signDay(Current.parse(signInList)) + 1;
+    }
+
+    @Benchmark
+    public int signInListParserChunked() throws Throwable {
+        return Current.signDay(Current.parseChunked(signInList, chunk)) + 1;
+    }
+
+    // ================= doSignin / getTaskPrize: chỉ cần state =================
+
+    /**
+     * "Đã điểm danh" là nhánh cuối của chuỗi contains() cũ (trường hợp xấu nhất, gặp mỗi lần chạy lại)
+     */
+    @Benchmark
+    public boolean signinStateLegacy() {
+        return Legacy.signinAccepted(new String(signinAlready, StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public int signinStateParser() throws Throwable {
+        return Current.state(Current.parse(signinAlready));
+    }
+
+    @Benchmark
+    public boolean taskStateLegacy() {
+        return new String(task, StandardCharsets.UTF_8).contains("\"state\":200");
+    }
+
+    @Benchmark
+    public int taskStateParser() throws Throwable {
+        return Current.state(Current.parse(task));
+    }
+}
@@ -0,0 +1,20 @@
+@echo off
+rem Chạy MFO Attendance bằng runtime đi kèm và archive AppCDS (tạo bởi mvn -Pdist package)
+rem   bin\mfo                       giao diện
+rem   bin\mfo --headless [...]      không giao diện (tham số như java Cli, xem README)
+rem Tùy chọn JVM thêm qua JAVA_OPTS, vd: set JAVA_OPTS=-Dmfo.batch.parallelism=8
+setlocal
+for %%I in ("%~dp0..") do set "DIR=%%~fI"
+set "JAVA=%DIR%\runtime\bin\java"
+set "JAR=%DIR%\lib\mfo-attendance.jar"
+set "JSA=%DIR%\lib\mfo.jsa"
+
+rem Archive gắn với đường dẫn jar lúc tạo (JDK 17 không cho dời chỗ): cài sang thư mục khác thì tạo lại một lần
+set "JSA_HOME="
+if exist "%JSA%.home" set /p JSA_HOME=<"%JSA%.home"
+if /i not "%JSA_HOME%"=="%DIR%" (
+    echo Tao archive AppCDS cho %DIR% ^(chi lan dau^)... 1>&2
+    "%JAVA%" -XX:ArchiveClassesAtExit="%JSA%" -Djava.awt.headless=true -cp "%JAR%" CdsTraining >nul && (echo %DIR%)>"%JSA%.home"
+)
+
+"%JAVA%" -XX:SharedArchiveFile="%JSA%" %JAVA_OPTS% -cp "%JAR%" LoginApp %*
@@ -0,0 +1,2 @@
+public record Account(String username, String password) {
+}
@@ -0,0 +1,195 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * Danh sách account đọc thẳng từ file (mỗi dòng: username|password, UTF-8), dùng chung cho UI và headless.
+ * <p>
+ * Khi mở chỉ đọc file một lượt theo luồng để lập chỉ mục vị trí các dòng hợp lệ (12 byte / account),
+ * không giữ Account nào trong bộ nhớ; {@link #get(int)} đọc và tách đúng dòng đó khi cần.
+ * Nhờ vậy JList chỉ đọc các dòng đang hiển thị và batch lấy account lần lượt trong lúc chạy.
+ * Dòng sai định dạng (thiếu |, thiếu username / password, không phải UTF-8) bị bỏ qua và báo kèm số dòng.
+ * <p>
+ * File không được sửa trong lúc đang mở.
+ */
+public class AccountFile extends AbstractList<Account> implements RandomAccess, Closeable {
+
+    /**
+     * Nhận thông báo dòng sai định dạng
+     */
+    @FunctionalInterface
+    interface MalformedLineHandler {
+        void malformed(int lineNo, String reason);
+    }
+
+    private static final AccountFile EMPTY = new AccountFile(null, new long[0], new int[0], 0);
+
+    private final RandomAccessFile file;
+    private final long[] starts;
+    private final int[] lengths;
+    private final int size;
+
+    private AccountFile(RandomAccessFile file, long[] starts, int[] lengths, int size) {
+        this.file = file;
+        this.starts = starts;
+        this.lengths = lengths;
+        this.size = size;
+    }
+
+    static AccountFile empty() {
+        return EMPTY;
+    }
+
+    static AccountFile open(String filename, MalformedLineHandler onMalformed) throws IOException {
+        Path path = Path.of(filename);
+        Indexer indexer = new Indexer(onMalformed);
+        try (InputStream in = Files.newInputStream(path)) {
+            byte[] buf = new byte[1 << 16];
+            int n;
+            while ((n = in.read(buf)) > 0) indexer.feed(buf, n);
+        }
+        indexer.finish();
+        return new AccountFile(new RandomAccessFile(path.toFile(), "r"), indexer.starts, indexer.lengths, indexer.size);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Đọc account thứ {@code index} từ file
+     */
+    @Override
+    public Account get(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException(index);
+
+        byte[] bytes = new byte[lengths[index]];
+        try {
+            // RandomAccessFile không bị đóng khi thread đọc bị interrupt (khác FileChannel)
+            synchronized (file) {
+                file.seek(starts[index]);
+                file.readFully(bytes);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Không đọc được account dòng thứ " + (index + 1) + ": " + e.getMessage(), e);
+        }
+
+        // tách theo dấu | đầu tiên
+        String line = new String(bytes, StandardCharsets.UTF_8).strip();
+        int pipe = line.indexOf('|');
+        return new Account(line.substring(0, pipe).strip(), line.substring(pipe + 1).strip());
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (file != null) file.close();
+    }
+
+    /**
+     * Quét byte theo luồng, ghi lại vị trí các dòng hợp lệ
+     */
+    private static final class Indexer {
+        private final MalformedLineHandler onMalformed;
+        private long[] starts = new long[1024];
+        private int[] lengths = new int[1024];
+        private int size;
+
+        private long offset;
+        private long lineStart;
+        private int lineNo = 1;
+        private boolean pipe;
+        private boolean user;
+        private boolean pass;
+        private boolean badUtf8;
+        private int continuation; // số byte UTF-8 còn thiếu của ký tự hiện tại
+
+        Indexer(MalformedLineHandler onMalformed) {
+            this.onMalformed = onMalformed;
+        }
+
+        void feed(byte[] buf, int len) {
+            int i = 0;
+            // bỏ BOM UTF-8 đầu file
+            if (offset == 0 && len >= 3 && (buf[0] & 0xFF) == 0xEF && (buf[1] & 0xFF) == 0xBB && (buf[2] & 0xFF) == 0xBF) {
+                i = 3;
+                lineStart = 3;
+            }
+            for (; i < len; i++) {
+                int b = buf[i] & 0xFF;
+                long pos = offset + i;
+                if (b == '\n') {
+                    endLine(pos);
+                    lineStart = pos + 1;
+                    continue;
+                }
+
+                if (continuation > 0) {
+                    if ((b & 0xC0) == 0x80) {
+                        continuation--;
+                        continue;
+                    }
+                    // ký tự trước bị cụt, xử lý byte này như ký tự mới
+                    badUtf8 = true;
+                    continuation = 0;
+                }
+                if (b >= 0x80) {
+                    if (b >= 0xC2 && b <= 0xDF) continuation = 1;
+                    else if (b >= 0xE0 && b <= 0xEF) continuation = 2;
+                    else if (b >= 0xF0 && b <= 0xF4) continuation = 3;
+                    else badUtf8 = true;
+                    markText();
+                } else if (b == '|' && !pipe) {
+                    pipe = true;
+                } else if (b != ' ' && b != '\t' && b != '\r') {
+                    markText();
+                }
+            }
+            offset += len;
+        }
+
+        void finish() {
+            if (offset > lineStart) endLine(offset);
+        }
+
+        private void markText() {
+            if (pipe) pass = true;
+            else user = true;
+        }
+
+        private void endLine(long end) {
+            boolean blank = !pipe && !user;
+            if (!blank) {
+                String reason = null;
+                if (badUtf8 || continuation > 0) reason = "không phải UTF-8 (file phải lưu dạng UTF-8)";
+                else if (!pipe) reason = "thiếu dấu | (định dạng username|password)";
+                else if (!user) reason = "thiếu username";
+                else if (!pass) reason = "thiếu password";
+                else if (end - lineStart > Integer.MAX_VALUE) reason = "dòng quá dài";
+
+                if (reason == null) add(lineStart, (int) (end - lineStart));
+                else if (onMalformed != null) onMalformed.malformed(lineNo, reason);
+            }
+            lineNo++;
+            pipe = user = pass = badUtf8 = false;
+            continuation = 0;
+        }
+
+        private void add(long start, int length) {
+            if (size == starts.length) {
+                starts = Arrays.copyOf(starts, size * 2);
+                lengths = Arrays.copyOf(lengths, size * 2);
+            }
+            starts[size] = start;
+            lengths[size] = length;
+            size++;
+        }
+    }
+}
@@ -0,0 +1,534 @@
+import java.net.CookieHandler;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Chạy toàn bộ luồng login → getSignInList → doSignin → getFullPrize → doTask cho một account.
+ * Trạng thái đăng nhập được giữ trong {@link Session} và truyền tường minh vào từng API call.
+ * <p>
+ * {@link #run} chạy tuần tự trên thread gọi; {@link #runAsync} là cùng luồng đó dạng chuỗi CompletableFuture,
+ * không giữ thread nào trong lúc chờ mạng (chỉ bước nhập captcha chạy trên executor riêng).
+ * <p>
+ * Các bước thành công được ghi vào {@link RunJournal}; chạy lại trong cùng ngày thì bỏ qua phần đã xong.
+ * Số ngày đã điểm danh trong tháng lấy từ {@link SignInCalendar} nếu có, khỏi gọi getSignInList.
+ */
+public class AccountWorker {
+
+    private final Account account;
+    private final MfoApi api;
+    private final CookieHandler cookies;
+    private final RunListener listener;
+    private final TokenStore tokens;
+    private final RunJournal journal;
+    private final SignInCalendar calendar;
+
+    /**
+     * @param tokens   nơi lưu session giữa các lần chạy, null = luôn đăng nhập lại
+     * @param journal  nhật ký các bước đã xong trong ngày, null = không ghi / không chạy tiếp
+     * @param calendar lịch điểm danh trong tháng, null = luôn gọi getSignInList
+     */
+    public AccountWorker(Account account, MfoApi api, CookieHandler cookies, RunListener listener, TokenStore tokens,
+                         RunJournal journal, SignInCalendar calendar) {
+        this.account = account;
+        this.api = api;
+        this.cookies = cookies;
+        this.listener = listener;
+        this.tokens = tokens;
+        this.journal = journal;
+        this.calendar = calendar;
+    }
+
+    /**
+     * @param solver      nguồn mã captcha
+     * @param maxAttempts số lần thử lại khi sai captcha
+     * @return true nếu chạy hết luồng (kể cả quà đã nhận), false nếu lỗi
+     */
+    public boolean run(CaptchaSolver solver, int maxAttempts) {
+        try {
+            // --- ĐÃ XONG / ĐANG DỞ THEO JOURNAL ---
+            if (finishedToday()) return true;
+
+            // --- SESSION ĐÃ LƯU ---
+            Session cached = cachedSession();
+            int signed = cached == null ? -1 : signedToday();
+            if (signed > 0) return afterSignin(cached, signed);
+            if (cached != null) {
+                listener.step(account, RunListener.Step.SIGNIN);
+                // server nhận doSignin theo lịch đã lưu = token còn dùng được
+                signed = signinFromCalendar(cached);
+                if (signed > 0) {
+                    sessionReused(cached);
+                    return afterSignin(cached, signed);
+                }
+                MfoApi.SignInListResult list = api.getSignInList(cached);
+                int dateNo = listed(list.nextDateNo());
+                if (dateNo > 0) {
+                    sessionReused(cached);
+                    return runTasks(cached, dateNo);
+                }
+                if (!list.rejected()) return listFailed();
+                // server từ chối token → đăng nhập lại
+                sessionRejected();
+            }
+
+            // --- LOGIN ---
+            listener.step(account, RunListener.Step.LOGIN);
+            Session session = login(solver, maxAttempts);
+            if (session == null) {
+                listener.step(account, RunListener.Step.ERROR);
+                return false;
+            }
+            saveSession(session);
+
+            listener.step(account, RunListener.Step.SIGNIN);
+            signed = signinFromCalendar(session);
+            if (signed > 0) return afterSignin(session, signed);
+            return runTasks(session, listed(api.getSignInList(session).nextDateNo()));
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            listener.step(account, RunListener.Step.ERROR);
+            return false;
+        }
+    }
+
+    /**
+     * Chạy phần sign-in / full prize / task với session đã đăng nhập
+     *
+     * @param dateNo ngày cần điểm danh theo getSignInList, -1 nếu lỗi
+     */
+    public boolean runTasks(Session session, int dateNo) throws Exception {
+        // --- SIGNIN ---
+        if (dateNo > 0 && signin(session, dateNo)) fullPrizeIfDue(session, dateNo);
+
+        // --- TASK NGÀY ---
+        return doTask(session);
+    }
+
+    /**
+     * Điểm danh theo lịch đã lưu, không gọi getSignInList
+     *
+     * @return dateNo đã điểm danh, -1 nếu chưa có lịch hoặc server không nhận (→ hỏi lại getSignInList)
+     */
+    private int signinFromCalendar(Session session) throws Exception {
+        int dateNo = plannedDateNo();
+        return dateNo > 0 && signedFromCalendar(dateNo, api.doSignin(session, dateNo, signType(dateNo))) ? dateNo : -1;
+    }
+
+    private boolean signin(Session session, int dateNo) throws Exception {
+        return signed(dateNo, api.doSignin(session, dateNo, signType(dateNo)));
+    }
+
+    private boolean afterSignin(Session session, int dateNo) {
+        fullPrizeIfDue(session, dateNo);
+        return doTask(session);
+    }
+
+    private void fullPrizeIfDue(Session session, int dateNo) {
+        int month = MfoApi.currentYearMonth();
+        if (!needsFullPrize(dateNo, MfoApi.getLastDayOfMonth()) || fullPrizeDone(month)) return;
+
+        listener.step(account, RunListener.Step.FULL_PRIZE);
+        fullPrizeReceived(month, api.getFullPrize(session));
+    }
+
+    private boolean doTask(Session session) {
+        listener.step(account, RunListener.Step.TASK);
+        return taskDone(api.doTask(session));
+    }
+
+    private boolean taskDone(MfoApi.PrizeResult result) {
+        // chỉ ghi journal khi chắc chắn đã nhận: lỗi token / lỗi server thì lần chạy lại còn thử tiếp
+        if (result.claimed() && journal != null) journal.taskDone(account);
+        return result.state() != ApiState.NONE;
+    }
+
+    /**
+     * Quyết định sau khi điểm danh thành công
+     *
+     * @return true nếu vừa đủ ngày → cần nhận full prize
+     */
+    private boolean needsFullPrize(int dateNo, int lastDay) {
+        // VỪA ĐỦ NGÀY → NHẬN FULL PRIZE
+        if (dateNo == lastDay) return true;
+
+        // ĐÃ VƯỢT NGÀY CUỐI THÁNG → COI NHƯ ĐÃ NHẬN
+        if (dateNo > lastDay) {
+            listener.log(account, "⚠️ Thưởng đủ ngày tháng này đã nhận rồi");
+            listener.status(account, "⚠️ Đã nhận thưởng đủ ngày tháng");
+        }
+        // CHƯA ĐỦ NGÀY
+        else {
+            listener.log(account, "ℹ️ Chưa đủ ngày (" + (dateNo - 1) + "/" + lastDay + "), bỏ qua full prize");
+        }
+        return false;
+    }
+
+    // ================= JOURNAL / SESSION =================
+
+    /**
+     * Hôm nay đã nhận quà task rồi (theo journal) → không gọi API nào nữa
+     */
+    private boolean finishedToday() {
+        if (journal == null || !journal.finished(account)) return false;
+        listener.log(account, "⏭️ Hôm nay đã hoàn thành (theo journal), bỏ qua");
+        listener.step(account, RunListener.Step.DONE);
+        return true;
+    }
+
+    /**
+     * @return dateNo đã điểm danh hôm nay (theo journal), -1 nếu chưa → bỏ qua getSignInList / doSignin
+     */
+    private int signedToday() {
+        int dateNo = journal == null ? -1 : journal.signedDate(account);
+        if (dateNo > 0) listener.log(account, "♻️ Đã điểm danh ngày " + dateNo + " (theo journal), chạy tiếp các bước sau");
+        return dateNo;
+    }
+
+    private boolean fullPrizeDone(int month) {
+        String source = journal != null && journal.fullPrizeDone(account, month) ? "journal"
+                : calendar != null && calendar.fullPrizeDone(account) ? "lịch đã lưu" : null;
+        if (source == null) return false;
+        listener.log(account, "⏭️ Thưởng đủ ngày tháng " + month + " đã nhận (theo " + source + ")");
+        return true;
+    }
+
+    private void fullPrizeReceived(int month, MfoApi.PrizeResult result) {
+        if (!result.ok()) return;
+        if (journal != null) journal.fullPrize(account, month);
+        if (calendar != null) calendar.fullPrize(account);
+    }
+
+    // ================= LỊCH ĐIỂM DANH =================
+
+    /**
+     * @return ngày cần điểm danh theo lịch đã lưu, -1 nếu chưa có lịch tháng này
+     */
+    private int plannedDateNo() {
+        int signDay = calendar == null ? -1 : calendar.signDay(account);
+        if (signDay < 0) return -1;
+        listener.log(account, "📅 Đã điểm danh " + signDay + " ngày (theo lịch đã lưu), bỏ qua getSignInList");
+        return signDay + 1;
+    }
+
+    /**
+     * Lưu kết quả getSignInList vào lịch
+     *
+     * @return chính {@code dateNo}
+     */
+    private int listed(int dateNo) {
+        if (dateNo > 0 && calendar != null) calendar.listed(account, dateNo - 1);
+        return dateNo;
+    }
+
+    /**
+     * Ghi kết quả doSignin vào journal / lịch
+     *
+     * @return true nếu server nhận (kể cả ngày đó đã điểm danh rồi)
+     */
+    private boolean signed(int dateNo, MfoApi.SigninResult result) {
+        if (result.accepted() && journal != null) journal.signed(account, dateNo);
+        if (calendar != null) {
+            // qua ngày cuối tháng thì "đã điểm danh" là đúng với lịch; còn lại là lịch đã cũ (điểm danh ở nơi khác)
+            if (result.state() == ApiState.OK || (result.accepted() && dateNo > MfoApi.getLastDayOfMonth())) {
+                calendar.signed(account, dateNo);
+            } else {
+                calendar.invalidate(account);
+            }
+        }
+        return result.accepted();
+    }
+
+    /**
+     * Kết quả doSignin theo lịch đã lưu: chỉ tin khi server vừa điểm danh (OK) hoặc đã qua ngày cuối tháng.
+     * "Đã điểm danh" với ngày khác nghĩa là lịch đã cũ (điểm danh ở nơi khác): bỏ lịch, không ghi journal,
+     * để người gọi hỏi lại getSignInList và điểm danh đúng ngày ngay trong lần chạy này.
+     */
+    private boolean signedFromCalendar(int dateNo, MfoApi.SigninResult result) {
+        if (result.state() == ApiState.OK || (result.accepted() && dateNo > MfoApi.getLastDayOfMonth())) {
+            return signed(dateNo, result);
+        }
+        listener.log(account, "⚠️ Lịch điểm danh đã lưu không khớp server, hỏi lại getSignInList");
+        if (calendar != null) calendar.invalidate(account);
+        return false;
+    }
+
+    private static int signType(int dateNo) {
+        return dateNo != MfoApi.getTodayDateNo() ? SignType.BACK : SignType.TODAY;
+    }
+
+    /**
+     * Session trong TokenStore, nếu không có thì session đã login hôm nay theo journal
+     * (process chết trước khi TokenStore kịp ghi file)
+     */
+    private Session cachedSession() {
+        Session session = tokens == null ? null : tokens.get(account, cookies);
+        if (session == null && journal != null) session = journal.session(account, cookies);
+        return session;
+    }
+
+    private void saveSession(Session session) {
+        if (tokens != null) tokens.put(session);
+        if (journal != null) journal.login(session);
+    }
+
+    private void sessionRejected() {
+        listener.log(account, "⚠️ Session đã lưu không còn hợp lệ, đăng nhập lại");
+        if (tokens != null) tokens.remove(account.username());
+    }
+
+    /**
+     * getSignInList lỗi mạng / server (không phải server từ chối token): bỏ account lần này, giữ session đã lưu
+     * để lần chạy sau dùng lại
+     */
+    private boolean listFailed() {
+        listener.status(account, "❌ Lỗi lấy lịch điểm danh");
+        listener.log(account, "❌ Không lấy được lịch điểm danh, giữ session đã lưu để chạy lại sau");
+        listener.step(account, RunListener.Step.ERROR);
+        return false;
+    }
+
+    /**
+     * Server vừa nhận token đã lưu → tính lại hạn session từ bây giờ, để account chạy hằng ngày không phải
+     * login lại sau mỗi {@code mfo.session.ttlHours}
+     */
+    private void sessionReused(Session session) {
+        listener.log(account, "♻️ Dùng lại session đã lưu, bỏ qua login");
+        if (tokens != null) tokens.put(session);
+    }
+
+    // ================= BẤT ĐỒNG BỘ =================
+
+    /**
+     * Bản bất đồng bộ của {@link #run}. Hủy future trả về (hoặc hết {@code timeoutMs}) thì request đang chạy bị hủy
+     * và các bước sau không được gửi.
+     *
+     * @param blocking  executor cho bước giải captcha (dialog / stdin là thao tác chặn)
+     * @param timeoutMs thời gian tối đa cho cả account (kể cả login và chờ nhập captcha), &lt;= 0 = không giới hạn
+     * @return future hoàn thành với true nếu chạy hết luồng, false nếu lỗi (không bao giờ thất bại, trừ khi bị hủy)
+     */
+    public CompletableFuture<Boolean> runAsync(CaptchaSolver solver, int maxAttempts, Executor blocking, long timeoutMs) {
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        AtomicReference<Future<?>> current = new AtomicReference<>();
+        result.whenComplete((ok, e) -> {
+            Future<?> f = current.get();
+            if (e != null && f != null) f.cancel(true);
+        });
+
+        if (finishedToday()) {
+            result.complete(true);
+            return result;
+        }
+
+        Pipeline p = new Pipeline(result, current, timeoutMs);
+        Session cached = cachedSession();
+        int signed = cached == null ? -1 : signedToday();
+        CompletableFuture<Boolean> flow;
+        if (signed > 0) {
+            flow = afterSigninAsync(p, cached, signed);
+        } else if (cached != null) {
+            listener.step(account, RunListener.Step.SIGNIN);
+            flow = signinFromCalendarAsync(p, cached).thenCompose(planned -> {
+                if (planned > 0) {
+                    sessionReused(cached);
+                    return afterSigninAsync(p, cached, planned);
+                }
+                return p.track(api.getSignInListAsync(cached)).thenCompose(list -> {
+                    int dateNo = listed(list.nextDateNo());
+                    if (dateNo > 0) {
+                        sessionReused(cached);
+                        return runTasksAsync(p, cached, dateNo);
+                    }
+                    if (!list.rejected()) return CompletableFuture.completedFuture(listFailed());
+                    // server từ chối token → đăng nhập lại
+                    sessionRejected();
+                    return loginThenRunAsync(p, solver, maxAttempts, blocking);
+                });
+            });
+        } else {
+            flow = loginThenRunAsync(p, solver, maxAttempts, blocking);
+        }
+
+        withTimeout(p, flow).whenComplete((ok, e) -> {
+            if (e == null) {
+                result.complete(ok);
+            } else if (!result.isDone()) {
+                // timeout / lỗi giữa chừng → hủy bước đang chạy (request mạng hoặc chờ nhập captcha)
+                Future<?> f = current.get();
+                if (f != null) f.cancel(true);
+                Throwable cause = unwrap(e);
+                if (cause instanceof TimeoutException) {
+                    listener.status(account, "❌ Quá thời gian");
+                    listener.log(account, "❌ Quá " + timeoutMs + "ms chưa xong, bỏ qua account");
+                } else {
+                    cause.printStackTrace();
+                }
+                listener.step(account, RunListener.Step.ERROR);
+                result.complete(false);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Trạng thái một lần chạy bất đồng bộ: future kết quả (để dừng khi bị hủy) và bước mạng đang chạy (để hủy theo)
+     */
+    private record Pipeline(CompletableFuture<Boolean> result, AtomicReference<Future<?>> current, long timeoutMs) {
+
+        <T> CompletableFuture<T> track(CompletableFuture<T> step) {
+            current.set(step);
+            if (result.isDone()) step.cancel(true);
+            return step;
+        }
+    }
+
+    private CompletableFuture<Boolean> loginThenRunAsync(Pipeline p, CaptchaSolver solver, int maxAttempts, Executor blocking) {
+        listener.step(account, RunListener.Step.LOGIN);
+        return loginAsync(p, solver, 1, maxAttempts, blocking).thenCompose(session -> {
+            if (session == null) {
+                listener.step(account, RunListener.Step.ERROR);
+                return CompletableFuture.completedFuture(false);
+            }
+            saveSession(session);
+
+            listener.step(account, RunListener.Step.SIGNIN);
+            return signinFromCalendarAsync(p, session).thenCompose(planned -> planned > 0
+                    ? afterSigninAsync(p, session, planned)
+                    : listAsync(p, session).thenCompose(dateNo -> runTasksAsync(p, session, dateNo)));
+        });
+    }
+
+    private CompletableFuture<Session> loginAsync(Pipeline p, CaptchaSolver solver, int attempt, int maxAttempts,
+                                                  Executor blocking) {
+        if (attempt > maxAttempts || p.result().isDone()) return CompletableFuture.completedFuture(null);
+
+        CompletableFuture<String> captcha = p.track(interruptible(
+                () -> solver.solve(account, () -> api.getCaptcha(account, cookies)), blocking));
+
+        return captcha.thenCompose(code -> {
+            if (code == null || code.isBlank()) {
+                listener.status(account, "⚠️️️️ Vui lòng nhập captcha");
+                listener.log(account, "⚠️️️ Vui lòng nhập captcha");
+                return CompletableFuture.completedFuture(null);
+            }
+            return p.track(api.doLoginAsync(account, cookies, code.strip())).thenCompose(result -> {
+                if (result.state() == MfoApi.LoginState.OK) return CompletableFuture.completedFuture(result.session());
+                if (result.state() != MfoApi.LoginState.WRONG_CAPTCHA) return CompletableFuture.completedFuture(null);
+                return loginAsync(p, solver, attempt + 1, maxAttempts, blocking);
+            });
+        });
+    }
+
+    private CompletableFuture<Boolean> runTasksAsync(Pipeline p, Session session, int dateNo) {
+        CompletableFuture<Void> signin = CompletableFuture.completedFuture(null);
+        if (dateNo > 0) {
+            signin = p.track(api.doSigninAsync(session, dateNo, signType(dateNo))).thenCompose(r ->
+                    signed(dateNo, r) ? fullPrizeIfDueAsync(p, session, dateNo) : CompletableFuture.completedFuture(null));
+        }
+
+        return signin.thenCompose(v -> doTaskAsync(p, session));
+    }
+
+    /**
+     * Bản bất đồng bộ của {@link #signinFromCalendar}
+     */
+    private CompletableFuture<Integer> signinFromCalendarAsync(Pipeline p, Session session) {
+        int dateNo = plannedDateNo();
+        if (dateNo < 0) return CompletableFuture.completedFuture(-1);
+        return p.track(api.doSigninAsync(session, dateNo, signType(dateNo)))
+                .thenApply(r -> signedFromCalendar(dateNo, r) ? dateNo : -1);
+    }
+
+    /**
+     * getSignInList, kết quả được lưu vào lịch
+     *
+     * @return ngày cần điểm danh, -1 nếu lỗi
+     */
+    private CompletableFuture<Integer> listAsync(Pipeline p, Session session) {
+        return p.track(api.getSignInListAsync(session)).thenApply(list -> listed(list.nextDateNo()));
+    }
+
+    private CompletableFuture<Boolean> afterSigninAsync(Pipeline p, Session session, int dateNo) {
+        return fullPrizeIfDueAsync(p, session, dateNo).thenCompose(v -> doTaskAsync(p, session));
+    }
+
+    private CompletableFuture<Void> fullPrizeIfDueAsync(Pipeline p, Session session, int dateNo) {
+        int month = MfoApi.currentYearMonth();
+        if (!needsFullPrize(dateNo, MfoApi.getLastDayOfMonth()) || fullPrizeDone(month)) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        listener.step(account, RunListener.Step.FULL_PRIZE);
+        return p.track(api.getFullPrizeAsync(session)).thenAccept(prize -> fullPrizeReceived(month, prize));
+    }
+
+    private CompletableFuture<Boolean> doTaskAsync(Pipeline p, Session session) {
+        listener.step(account, RunListener.Step.TASK);
+        return p.track(api.doTaskAsync(session)).thenApply(this::taskDone);
+    }
+
+    private static <T> CompletableFuture<T> withTimeout(Pipeline p, CompletableFuture<T> f) {
+        return p.timeoutMs() > 0 ? f.orTimeout(p.timeoutMs(), TimeUnit.MILLISECONDS) : f;
+    }
+
+    /**
+     * Chạy {@code task} chặn trên {@code executor}; khác supplyAsync, hủy future trả về thì thread đang chạy
+     * bị interrupt (vd bỏ captcha đang chờ nhập của account đã quá thời gian)
+     */
+    static <T> CompletableFuture<T> interruptible(Callable<T> task, Executor executor) {
+        FutureTask<T> run = new FutureTask<>(task);
+        CompletableFuture<T> f = new CompletableFuture<>() {
+            @Override
+            public boolean cancel(boolean mayInterruptIfRunning) {
+                run.cancel(true);
+                return super.cancel(mayInterruptIfRunning);
+            }
+        };
+        try {
+            executor.execute(() -> {
+                run.run();
+                try {
+                    f.complete(run.get());
+                } catch (ExecutionException e) {
+                    f.completeExceptionally(e.getCause());
+                } catch (CancellationException | InterruptedException e) {
+                    f.cancel(false);
+                }
+            });
+        } catch (RuntimeException e) {
+            f.completeExceptionally(e);
+        }
+        return f;
+    }
+
+    private static Throwable unwrap(Throwable e) {
+        return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+    }
+
+    // ================= LOGIN =================
+    private Session login(CaptchaSolver solver, int maxAttempts) throws Exception {
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            String captcha = solver.solve(account, () -> api.getCaptcha(account, cookies));
+
+            if (captcha == null || captcha.isBlank()) {
+                listener.status(account, "⚠️️️️ Vui lòng nhập captcha");
+                listener.log(account, "⚠️️️ Vui lòng nhập captcha");
+                return null;
+            }
+
+            MfoApi.LoginResult result = api.doLogin(account, cookies, captcha.strip());
+            if (result.state() == MfoApi.LoginState.OK) return result.session();
+            if (result.state() != MfoApi.LoginState.WRONG_CAPTCHA) return null;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,407 @@
+import java.io.IOException;
+import java.net.CookieHandler;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Lớp transport dùng chung cho mọi API call tới mfapi.
+ * Một HttpClient duy nhất (HTTP/1.1 keep-alive, pool kết nối), executor giới hạn số thread,
+ * timeout connect/request và thống kê latency theo từng endpoint.
+ * Cookie được quản lý theo từng account (truyền CookieHandler vào mỗi call).
+ * <p>
+ * Mỗi request có hai dạng: chặn ({@link #post}, {@link #get}) và bất đồng bộ ({@link #postAsync}, {@link #getAsync})
+ * dùng chung rate limiter, circuit breaker, retry và metrics. Bản bất đồng bộ không giữ thread nào trong lúc chờ.
+ */
+public class ApiClient {
+
+    /**
+     * @param gzip gửi {@code Accept-Encoding: gzip}; response nén được giải nén theo luồng ({@link BodyDecoder})
+     */
+    record Options(String baseUrl, Duration connectTimeout, Duration requestTimeout, int maxThreads,
+                   int keepAliveSeconds, int poolSize, boolean gzip, RetryPolicy retry, CircuitBreaker.Options breaker,
+                   RateLimiter rateLimiter) {
+
+        static Options fromSystemProperties() {
+            return new Options(
+                    stripSlash(Config.get("mfo.baseUrl", LoginApp.BASE_URL)),
+                    Duration.ofMillis(Config.getLong("mfo.http.connectTimeoutMs", 5_000)),
+                    Duration.ofMillis(Config.getLong("mfo.http.requestTimeoutMs", 15_000)),
+                    Config.getInt("mfo.http.threads", 4),
+                    Config.getInt("mfo.http.keepAliveSec", 120),
+                    Config.getInt("mfo.http.poolSize", 0),
+                    Config.getBool("mfo.http.gzip", true),
+                    RetryPolicy.fromSystemProperties(),
+                    CircuitBreaker.Options.fromSystemProperties(),
+                    RateLimiter.fromSystemProperties());
+        }
+
+        /**
+         * Cùng cấu hình nhưng gọi tới server khác (vd {@link StubServer} khi load test)
+         */
+        Options withBaseUrl(String baseUrl) {
+            return new Options(stripSlash(baseUrl), connectTimeout, requestTimeout, maxThreads, keepAliveSeconds,
+                    poolSize, gzip, retry, breaker, rateLimiter);
+        }
+
+        private static String stripSlash(String url) {
+            return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+        }
+
+        /**
+         * Timeout riêng theo endpoint: -Dmfo.http.timeoutMs.&lt;tên endpoint&gt;, vd mfo.http.timeoutMs.doLogin
+         */
+        Duration timeoutFor(String path) {
+            String name = path.substring(path.lastIndexOf('/') + 1);
+            return Duration.ofMillis(Config.getLong("mfo.http.timeoutMs." + name, requestTimeout.toMillis()));
+        }
+    }
+
+    private final Options options;
+    private final ExecutorService executor;
+    private final HttpClient httpClient;
+    private final CircuitBreaker breaker;
+    private final Map<String, Duration> timeouts = new ConcurrentHashMap<>();
+    private final Metrics metrics = new Metrics();
+
+    public ApiClient(Options options) {
+        this.options = options;
+
+        // Các thuộc tính của JDK HttpClient chỉ được đọc một lần khi class khởi tạo,
+        // nên phải set trước khi tạo client đầu tiên (không ghi đè nếu user đã set bằng -D)
+        setIfAbsent("jdk.httpclient.keepalive.timeout", String.valueOf(options.keepAliveSeconds()));
+        setIfAbsent("jdk.httpclient.connectionPoolSize", String.valueOf(options.poolSize()));
+
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(options.maxThreads(), options.maxThreads(),
+                60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), daemonThreads("mfo-http-"));
+        pool.allowCoreThreadTimeOut(true);
+        this.executor = pool;
+
+        this.breaker = new CircuitBreaker(options.breaker());
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(options.connectTimeout())
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .executor(executor)
+                .build();
+    }
+
+    Options options() {
+        return options;
+    }
+
+    // ================= REQUEST =================
+    /**
+     * POST JSON, body response được parse ngay bằng {@link ResponseParser}
+     *
+     * @param account account gọi API (để thống kê theo account), có thể null
+     */
+    HttpResponse<ResponseParser> post(String path, HttpRequest.BodyPublisher body, Account account, String token,
+                                      CookieHandler cookies) throws Exception {
+        HttpRequest.Builder builder = newRequest(path, cookies)
+                .header("Content-Type", "application/json")
+                .POST(body);
+
+        if (token != null) builder.header("token", token);
+
+        HttpResponse<ResponseParser> res = send(path, builder, BodyDecoder.JSON, account, cookies);
+        metrics.recordState(path, res.body().state());
+        return res;
+    }
+
+    HttpResponse<byte[]> get(String path, Account account, CookieHandler cookies) throws Exception {
+        return send(path, newRequest(path, cookies).GET(), BodyDecoder.BYTES, account, cookies);
+    }
+
+    /**
+     * Bản bất đồng bộ của {@link #post}. Body phải là bản copy riêng ({@link RequestEncoder#detached()}).
+     * Hủy future trả về thì request đang chạy cũng bị hủy.
+     */
+    CompletableFuture<HttpResponse<ResponseParser>> postAsync(String path, HttpRequest.BodyPublisher body, Account account,
+                                                             String token, CookieHandler cookies) {
+        HttpRequest.Builder builder;
+        try {
+            builder = newRequest(path, cookies)
+                    .header("Content-Type", "application/json")
+                    .POST(body);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        if (token != null) builder.header("token", token);
+
+        CompletableFuture<HttpResponse<ResponseParser>> call = sendAsync(path, builder.build(), BodyDecoder.JSON, account, cookies);
+        return cancelling(call.thenApply(res -> {
+            metrics.recordState(path, res.body().state());
+            return res;
+        }), call);
+    }
+
+    CompletableFuture<HttpResponse<byte[]>> getAsync(String path, Account account, CookieHandler cookies) {
+        try {
+            return sendAsync(path, newRequest(path, cookies).GET().build(), BodyDecoder.BYTES, account, cookies);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private HttpRequest.Builder newRequest(String path, CookieHandler cookies) throws Exception {
+        URI uri = URI.create(options.baseUrl() + path);
+        Duration timeout = timeouts.computeIfAbsent(path, options::timeoutFor);
+        HttpRequest.Builder builder = HttpRequest.newBuilder().uri(uri).timeout(timeout);
+        if (options.gzip()) builder.header("Accept-Encoding", "gzip");
+
+        if (cookies != null) {
+            for (Map.Entry<String, List<String>> e : cookies.get(uri, Map.of()).entrySet()) {
+                if (!e.getValue().isEmpty()) builder.header(e.getKey(), String.join("; ", e.getValue()));
+            }
+        }
+        return builder;
+    }
+
+    /**
+     * Gửi request qua rate limiter và circuit breaker, thử lại theo {@link RetryPolicy} khi lỗi kết nối / timeout / 5xx
+     * / 429
+     */
+    private <T> HttpResponse<T> send(String path, HttpRequest.Builder builder, HttpResponse.BodyHandler<T> handler,
+                                     Account account, CookieHandler cookies) throws Exception {
+        HttpRequest req = builder.build();
+        RetryPolicy retry = options.retry();
+        long deadline = System.nanoTime() + retry.budget().toNanos();
+
+        for (int attempt = 1; ; attempt++) {
+            options.rateLimiter().acquire(path);
+            breaker.acquire();
+            long start = System.nanoTime();
+            HttpResponse<T> res;
+            try {
+                res = httpClient.send(req, handler);
+            } catch (InterruptedException e) {
+                // bị hủy, không có kết quả
+                breaker.release();
+                throw e;
+            } catch (IOException | RuntimeException e) {
+                breaker.record(false);
+                metrics.recordCall(path, account, System.nanoTime() - start, false);
+
+                if (e instanceof IOException io && retry.canRetry(path, io)
+                        && backoff(path, account, attempt, deadline, -1)) {
+                    continue;
+                }
+                throw e;
+            }
+
+            boolean serverError = res.statusCode() >= 500;
+            breaker.record(!serverError);
+            metrics.recordCall(path, account, System.nanoTime() - start, !serverError);
+
+            if (retry.canRetry(path, res.statusCode())
+                    && backoff(path, account, attempt, deadline, RetryPolicy.retryAfterMillis(res.headers()))) {
+                continue;
+            }
+            if (cookies != null) cookies.put(req.uri(), res.headers().map());
+            return res;
+        }
+    }
+
+    /**
+     * Ngủ trước lần thử tiếp theo
+     *
+     * @param retryAfterMs chờ ít nhất chừng này (header Retry-After), -1 = không có
+     * @return false nếu đã hết số lần thử hoặc hết budget thời gian
+     */
+    private boolean backoff(String path, Account account, int attempt, long deadline, long retryAfterMs)
+            throws InterruptedException {
+        long delayMs = nextBackoff(path, account, attempt, deadline, retryAfterMs);
+        if (delayMs < 0) return false;
+        Thread.sleep(delayMs);
+        return true;
+    }
+
+    /**
+     * @return thời gian chờ (ms) trước lần thử tiếp theo, -1 nếu đã hết số lần thử hoặc hết budget thời gian
+     */
+    private long nextBackoff(String path, Account account, int attempt, long deadline, long retryAfterMs) {
+        RetryPolicy retry = options.retry();
+        if (attempt >= retry.maxAttempts()) return -1;
+        long delayMs = retry.backoffMillis(attempt, retryAfterMs);
+        if (System.nanoTime() + delayMs * 1_000_000 >= deadline) return -1;
+
+        metrics.recordRetry(path, account);
+        return delayMs;
+    }
+
+    // ================= BẤT ĐỒNG BỘ =================
+    private <T> CompletableFuture<HttpResponse<T>> sendAsync(String path, HttpRequest req, HttpResponse.BodyHandler<T> handler,
+                                                             Account account, CookieHandler cookies) {
+        CompletableFuture<HttpResponse<T>> result = new CompletableFuture<>();
+        AtomicReference<Future<?>> inFlight = new AtomicReference<>();
+        result.whenComplete((res, e) -> {
+            Future<?> f = inFlight.get();
+            if (e != null && f != null) f.cancel(true);
+        });
+
+        long deadline = System.nanoTime() + options.retry().budget().toNanos();
+        attemptAsync(path, req, handler, account, cookies, 1, deadline, result, inFlight);
+        return result;
+    }
+
+    /**
+     * Một lần thử: chờ permit (không chặn thread) → sendAsync → quyết định thử lại / hoàn thành {@code result}.
+     * Permit của circuit breaker luôn được trả bằng {@link CircuitBreaker#record} (có kết quả) hoặc
+     * {@link CircuitBreaker#release} (bị hủy trước khi có kết quả), kể cả khi đó là call thử của HALF_OPEN.
+     */
+    private <T> void attemptAsync(String path, HttpRequest req, HttpResponse.BodyHandler<T> handler, Account account,
+                                  CookieHandler cookies, int attempt, long deadline,
+                                  CompletableFuture<HttpResponse<T>> result, AtomicReference<Future<?>> inFlight) {
+        if (result.isDone()) return;
+
+        AtomicBoolean held = new AtomicBoolean();
+        CompletableFuture<Void> permit = options.rateLimiter().acquireAsync(path, executor)
+                .thenCompose(v -> breakerPermit(held, result));
+        inFlight.set(permit);
+        permit.whenComplete((v, permitError) -> {
+            if (permitError != null || result.isDone()) {
+                releaseIfHeld(held);
+                if (permitError != null) result.completeExceptionally(permitError);
+                return;
+            }
+
+            long start = System.nanoTime();
+            CompletableFuture<HttpResponse<T>> http;
+            try {
+                http = httpClient.sendAsync(req, handler);
+            } catch (RuntimeException e) {
+                releaseIfHeld(held);
+                result.completeExceptionally(e);
+                return;
+            }
+            inFlight.set(http);
+            if (result.isDone()) http.cancel(true);
+
+            http.whenComplete((res, error) -> {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                if (cause instanceof CancellationException) {
+                    releaseIfHeld(held);
+                    result.completeExceptionally(cause);
+                    return;
+                }
+
+                boolean ok = cause == null && res.statusCode() < 500;
+                held.set(false);
+                breaker.record(ok);
+                try {
+                    metrics.recordCall(path, account, System.nanoTime() - start, ok);
+
+                    RetryPolicy retry = options.retry();
+                    boolean retryable = cause == null
+                            ? retry.canRetry(path, res.statusCode())
+                            : cause instanceof IOException io && retry.canRetry(path, io);
+                    long retryAfterMs = cause == null ? RetryPolicy.retryAfterMillis(res.headers()) : -1;
+                    long delayMs = retryable ? nextBackoff(path, account, attempt, deadline, retryAfterMs) : -1;
+                    if (delayMs >= 0) {
+                        CompletableFuture.delayedExecutor(delayMs, TimeUnit.MILLISECONDS, executor).execute(() ->
+                                attemptAsync(path, req, handler, account, cookies, attempt + 1, deadline, result, inFlight));
+                        return;
+                    }
+                    if (cause != null) {
+                        result.completeExceptionally(cause);
+                        return;
+                    }
+
+                    if (cookies != null) cookies.put(req.uri(), res.headers().map());
+                    result.complete(res);
+                } catch (IOException | RuntimeException e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        });
+    }
+
+    /**
+     * Chờ circuit breaker cho phép gọi, bằng lịch hẹn thay vì chặn thread.
+     * Đặt {@code held} khi đã lấy được permit; call đã bị hủy trong lúc chờ thì không giữ permit nữa.
+     */
+    private CompletableFuture<Void> breakerPermit(AtomicBoolean held, CompletableFuture<?> result) {
+        if (result.isDone()) return CompletableFuture.failedFuture(new CancellationException());
+        long waitMs = breaker.tryAcquire();
+        if (waitMs == 0) {
+            held.set(true);
+            // bị hủy đúng lúc vừa lấy permit
+            if (result.isDone()) releaseIfHeld(held);
+            return CompletableFuture.completedFuture(null);
+        }
+        return CompletableFuture.runAsync(() -> {
+        }, CompletableFuture.delayedExecutor(waitMs, TimeUnit.MILLISECONDS, executor))
+                .thenCompose(v -> breakerPermit(held, result));
+    }
+
+    private void releaseIfHeld(AtomicBoolean held) {
+        if (held.getAndSet(false)) breaker.release();
+    }
+
+    /**
+     * CompletableFuture không lan truyền cancel ngược lên: khi {@code dependent} bị hủy / timeout thì hủy luôn {@code source}
+     */
+    static <T> CompletableFuture<T> cancelling(CompletableFuture<T> dependent, Future<?> source) {
+        dependent.whenComplete((r, e) -> {
+            if (e != null) source.cancel(true);
+        });
+        return dependent;
+    }
+
+    // ================= METRICS =================
+    Metrics metrics() {
+        return metrics;
+    }
+
+    /**
+     * Tóm tắt latency / state theo endpoint, hàng đợi rate limiter và trạng thái circuit breaker
+     */
+    String latencySummary() {
+        return metrics.summary()
+                + options.rateLimiter().summary()
+                + "⛔ Circuit breaker: " + breaker.state() + System.lineSeparator();
+    }
+
+    RateLimiter rateLimiter() {
+        return options.rateLimiter();
+    }
+
+    CircuitBreaker breaker() {
+        return breaker;
+    }
+
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    private static void setIfAbsent(String key, String value) {
+        if (System.getProperty(key) == null) System.setProperty(key, value);
+    }
+
+    static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger seq = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
@@ -0,0 +1,13 @@
+/**
+ * Mã "state" trả về từ mfapi
+ */
+public class ApiState {
+    public static final int NONE = -1;                  // response không có state
+    public static final int OK = 200;
+    public static final int FAILED = 500;               // sai username / password
+    public static final int WRONG_CAPTCHA = 100002;     // mã xác thực sai
+    public static final int ALREADY_SIGNED = 10002;     // ngày này đã điểm danh
+    public static final int ALREADY_SIGNED_2 = 100007;  // ngày này đã điểm danh
+    public static final int ALREADY_BACK_SIGNED = 100024; // ngày này đã điểm danh bù
+    public static final int PRIZE_CLAIMED = 100010;     // quà đã nhận rồi
+}
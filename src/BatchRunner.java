@@ -0,0 +1,267 @@
+import java.net.CookieHandler;
+import java.net.CookieManager;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Chạy luồng sign-in / task cho toàn bộ account song song, giới hạn số account chạy cùng lúc.
+ * Account lỗi được bỏ qua, không ảnh hưởng account khác.
+ * <p>
+ * Hai chế độ (-Dmfo.batch.mode): {@code pool} = mỗi account một thread trong pool cố định (gọi API kiểu chặn),
+ * {@code async} = chuỗi CompletableFuture trên HttpClient.sendAsync, {@code virtual} = mỗi account một thread ảo
+ * (Java 21+) chạy đúng code chặn của {@code pool}. Với async / virtual, parallelism là số account đang chạy cùng lúc
+ * chứ không phải số thread.
+ * <p>
+ * Account được lấy lần lượt từ danh sách khi có chỗ trống và chỉ giữ trạng thái của các account đang chạy,
+ * nên danh sách đọc lười từ file ({@link AccountFile}) được nạp dần trong lúc chạy. Với {@code spreadMs} &gt; 0,
+ * account thứ i bắt đầu sớm nhất sau spreadMs * i / tổng số account (tránh dồn request vào cùng một lúc).
+ */
+public class BatchRunner {
+
+    enum Mode {
+        POOL, ASYNC, VIRTUAL
+    }
+
+    /**
+     * @param spreadMs giãn thời điểm bắt đầu của các account đều ra trong khoảng này (0 = bắt đầu ngay khi có chỗ)
+     */
+    record Options(int parallelism, int captchaAttempts, Mode mode, long accountTimeoutMs, long spreadMs) {
+
+        static Options fromSystemProperties() {
+            return new Options(
+                    Math.max(1, Config.getInt("mfo.batch.parallelism", 4)),
+                    Math.max(1, Config.getInt("mfo.batch.captchaAttempts", 3)),
+                    parseMode(Config.get("mfo.batch.mode", "pool")),
+                    Config.getLong("mfo.batch.accountTimeoutMs", 60_000),
+                    Math.max(0, Config.getLong("mfo.batch.spreadMs", 0)));
+        }
+
+        Options withParallelism(int parallelism) {
+            return new Options(parallelism, captchaAttempts, mode, accountTimeoutMs, spreadMs);
+        }
+
+        Options withMode(Mode mode) {
+            return new Options(parallelism, captchaAttempts, mode, accountTimeoutMs, spreadMs);
+        }
+
+        Options withSpread(long spreadMs) {
+            return new Options(parallelism, captchaAttempts, mode, accountTimeoutMs, spreadMs);
+        }
+
+        static Mode parseMode(String value) {
+            try {
+                return Mode.valueOf(value.toUpperCase());
+            } catch (IllegalArgumentException e) {
+                System.err.println("⚠️ Cấu hình sai mfo.batch.mode=" + value + ", dùng mặc định pool");
+                return Mode.POOL;
+            }
+        }
+    }
+
+    record Summary(int total, int success, int failed, long elapsedMs) {
+    }
+
+    /**
+     * Được gọi mỗi khi một account chạy xong
+     */
+    @FunctionalInterface
+    interface ProgressCallback {
+        void onAccountDone(Account account, boolean success, int done, int total);
+    }
+
+    private final MfoApi mfoApi;
+    private final CaptchaSolver solver;
+    private final RunListener listener;
+    private final TokenStore tokens;
+    private final RunJournal journal;
+    private final SignInCalendar calendar;
+    private final Options options;
+    private final Function<Account, CookieHandler> cookieJars;
+
+    public BatchRunner(ApiClient api, CaptchaSolver solver, RunListener listener, TokenStore tokens,
+                       RunJournal journal, SignInCalendar calendar, Options options) {
+        this(api, solver, listener, tokens, journal, calendar, options, account -> new CookieManager());
+    }
+
+    /**
+     * @param journal    nhật ký các bước đã xong, null = không chạy tiếp từ lần chạy bị ngắt
+     * @param calendar   lịch điểm danh trong tháng, null = luôn gọi getSignInList
+     * @param cookieJars cookie jar cho từng account (vd của {@link CaptchaQueue}, nơi captcha đã được tải trước)
+     */
+    public BatchRunner(ApiClient api, CaptchaSolver solver, RunListener listener, TokenStore tokens,
+                       RunJournal journal, SignInCalendar calendar, Options options,
+                       Function<Account, CookieHandler> cookieJars) {
+        this.mfoApi = new MfoApi(api, listener);
+        this.solver = solver;
+        this.listener = listener;
+        this.tokens = tokens;
+        this.journal = journal;
+        this.calendar = calendar;
+        this.options = options;
+        this.cookieJars = cookieJars;
+    }
+
+    public Summary runAll(List<Account> accounts, ProgressCallback progress) throws InterruptedException {
+        return runAll(accounts, accounts.size(), progress);
+    }
+
+    /**
+     * Chạy các account lấy lần lượt từ {@code accounts} (vd danh sách đã lọc lười, không dựng list trong bộ nhớ)
+     *
+     * @param total số account dự kiến, dùng để giãn thời điểm bắt đầu và báo tiến độ
+     */
+    public Summary runAll(Iterable<Account> accounts, int total, ProgressCallback progress) throws InterruptedException {
+        long start = System.nanoTime();
+        AtomicInteger started = new AtomicInteger();
+        AtomicInteger done = new AtomicInteger();
+        AtomicInteger success = new AtomicInteger();
+
+        Tally tally = (account, ok) -> {
+            if (ok) success.incrementAndGet();
+            if (progress != null) progress.onAccountDone(account, ok, done.incrementAndGet(), total);
+        };
+
+        try {
+            switch (options.mode()) {
+                case ASYNC -> started.set(runAsync(accounts, total, tally));
+                case VIRTUAL -> started.set(runVirtual(accounts, total, tally));
+                default -> started.set(runThreads(accounts, total, tally,
+                        Executors.newFixedThreadPool(options.parallelism(), ApiClient.daemonThreads("mfo-account-"))));
+            }
+        } finally {
+            if (tokens != null) tokens.flush();
+            if (journal != null) journal.flush();
+            if (calendar != null) calendar.flush();
+        }
+
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        return new Summary(started.get(), success.get(), started.get() - success.get(), elapsedMs);
+    }
+
+    private interface Tally {
+        void done(Account account, boolean ok);
+    }
+
+    /**
+     * Mỗi account một thread ảo, giới hạn số account chạy cùng lúc bằng semaphore.
+     * JVM chưa có thread ảo (&lt; 21) thì quay về pool thread thường.
+     */
+    private int runVirtual(Iterable<Account> accounts, int total, Tally tally) throws InterruptedException {
+        ExecutorService executor = newVirtualThreadExecutor();
+        if (executor == null) {
+            System.err.println("⚠️ JVM " + Runtime.version().feature() + " chưa hỗ trợ thread ảo, dùng pool "
+                    + options.parallelism() + " thread");
+            executor = Executors.newFixedThreadPool(options.parallelism(), ApiClient.daemonThreads("mfo-account-"));
+        }
+        return runThreads(accounts, total, tally, executor);
+    }
+
+    /**
+     * Executors.newVirtualThreadPerTaskExecutor() gọi qua reflection để vẫn biên dịch được bằng JDK 17
+     *
+     * @return null nếu JVM không hỗ trợ
+     */
+    static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Chạy luồng chặn ({@link AccountWorker#run}) của từng account trên {@code executor},
+     * tối đa {@code parallelism} account cùng lúc
+     *
+     * @return số account đã chạy
+     */
+    private int runThreads(Iterable<Account> accounts, int total, Tally tally, ExecutorService executor) throws InterruptedException {
+        int parallelism = options.parallelism();
+        Semaphore slots = new Semaphore(parallelism);
+        long start = System.nanoTime();
+        int index = 0;
+        try {
+            for (Account account : accounts) {
+                pace(start, index++, total);
+                slots.acquire();
+                executor.execute(() -> {
+                    boolean ok = false;
+                    try {
+                        ok = new AccountWorker(account, mfoApi, cookieJars.apply(account), listener, tokens, journal, calendar)
+                                .run(solver, options.captchaAttempts());
+                    } catch (RuntimeException e) {
+                        listener.log(account, "❌ Lỗi không xác định: " + e.getMessage());
+                        e.printStackTrace();
+                    } finally {
+                        tally.done(account, ok);
+                        slots.release();
+                    }
+                });
+            }
+            // chờ các account cuối cùng chạy xong
+            slots.acquire(parallelism);
+            return index;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Tối đa {@code parallelism} account đang chạy cùng lúc; chỉ bước nhập captcha chiếm thread (executor riêng)
+     */
+    private int runAsync(Iterable<Account> accounts, int total, Tally tally) throws InterruptedException {
+        ExecutorService captchaPool = Executors.newCachedThreadPool(ApiClient.daemonThreads("mfo-captcha-"));
+        int parallelism = options.parallelism();
+        Semaphore slots = new Semaphore(parallelism);
+        Set<CompletableFuture<Boolean>> running = ConcurrentHashMap.newKeySet();
+        long start = System.nanoTime();
+        int index = 0;
+        try {
+            for (Account account : accounts) {
+                pace(start, index++, total);
+                slots.acquire();
+                CompletableFuture<Boolean> f;
+                try {
+                    f = new AccountWorker(account, mfoApi, cookieJars.apply(account), listener, tokens, journal, calendar)
+                            .runAsync(solver, options.captchaAttempts(), captchaPool, options.accountTimeoutMs());
+                } catch (RuntimeException e) {
+                    listener.log(account, "❌ Lỗi không xác định: " + e.getMessage());
+                    e.printStackTrace();
+                    f = CompletableFuture.completedFuture(false);
+                }
+                running.add(f);
+                CompletableFuture<Boolean> current = f;
+                f.whenComplete((ok, e) -> {
+                    running.remove(current);
+                    tally.done(account, ok != null && ok);
+                    slots.release();
+                });
+            }
+            slots.acquire(parallelism);
+            return index;
+        } catch (InterruptedException e) {
+            running.forEach(f -> f.cancel(true));
+            throw e;
+        } finally {
+            captchaPool.shutdownNow();
+        }
+    }
+
+    /**
+     * Chờ tới lượt bắt đầu của account thứ {@code index} (chờ trước khi lấy chỗ, không giữ slot trong lúc chờ)
+     */
+    private void pace(long startNanos, int index, int total) throws InterruptedException {
+        if (options.spreadMs() <= 0 || total <= 1) return;
+        long due = startNanos + TimeUnit.MILLISECONDS.toNanos(options.spreadMs() * Math.min(index, total) / total);
+        long waitNanos = due - System.nanoTime();
+        if (waitNanos > 0) TimeUnit.NANOSECONDS.sleep(waitNanos);
+    }
+}
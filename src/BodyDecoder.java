@@ -0,0 +1,302 @@
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Đọc body response theo từng đoạn khi nó tới, giải nén gzip nếu server trả {@code Content-Encoding: gzip},
+ * và đẩy thẳng từng đoạn vào đích (vd {@link ResponseParser#feed}) — không gom cả body (nén hay đã giải nén)
+ * vào một mảng.
+ * <p>
+ * Header / trailer gzip được đọc bằng máy trạng thái nên có thể bị cắt ở bất kỳ đâu giữa các đoạn;
+ * CRC32 và độ dài trong trailer được kiểm tra, body bị cắt giữa chừng là lỗi IOException.
+ * Bộ đệm giải nén là của thread ({@link #SCRATCH}), đích phải xử lý xong dữ liệu trước khi {@link Sink#write} trả về.
+ */
+final class BodyDecoder<T> implements HttpResponse.BodySubscriber<T> {
+
+    /**
+     * Nơi nhận body đã giải nén
+     */
+    interface Sink<T> {
+        void write(byte[] buf, int off, int len);
+
+        T finish();
+    }
+
+    /**
+     * Body JSON parse ngay trong lúc nhận
+     */
+    static final HttpResponse.BodyHandler<ResponseParser> JSON = info -> new BodyDecoder<>(info, new Sink<>() {
+        private final ResponseParser parser = new ResponseParser();
+
+        @Override
+        public void write(byte[] buf, int off, int len) {
+            parser.feed(buf, off, len);
+        }
+
+        @Override
+        public ResponseParser finish() {
+            parser.finish();
+            return parser;
+        }
+    });
+
+    /**
+     * Body nhị phân (ảnh captcha), đã giải nén nếu cần
+     */
+    static final HttpResponse.BodyHandler<byte[]> BYTES = info -> new BodyDecoder<>(info, new Sink<>() {
+        private byte[] bytes = new byte[(int) Math.min(Math.max(info.headers().firstValueAsLong("Content-Length")
+                .orElse(1024), 16), 1 << 20)];
+        private int size;
+
+        @Override
+        public void write(byte[] buf, int off, int len) {
+            if (size + len > bytes.length) bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + len));
+            System.arraycopy(buf, off, bytes, size, len);
+            size += len;
+        }
+
+        @Override
+        public byte[] finish() {
+            return size == bytes.length ? bytes : Arrays.copyOf(bytes, size);
+        }
+    });
+
+    private static final ThreadLocal<byte[]> SCRATCH = ThreadLocal.withInitial(() -> new byte[8192]);
+
+    // trạng thái đọc gzip
+    private static final int HEADER = 0;
+    private static final int EXTRA_LEN = 1;
+    private static final int EXTRA = 2;
+    private static final int NAME = 3;
+    private static final int COMMENT = 4;
+    private static final int HEADER_CRC = 5;
+    private static final int DEFLATE = 6;
+    private static final int TRAILER = 7;
+    private static final int DONE = 8;
+
+    private static final int FHCRC = 2;
+    private static final int FEXTRA = 4;
+    private static final int FNAME = 8;
+    private static final int FCOMMENT = 16;
+
+    private final Sink<T> sink;
+    private final CompletableFuture<T> result = new CompletableFuture<>();
+    private Flow.Subscription subscription;
+
+    private final boolean gzip;
+    private Inflater inflater;
+    private CRC32 crc;
+    private int gzipState = HEADER;
+    private int flags;
+    private int remaining = 10;  // số byte còn lại của phần đang đọc (header cố định / extra / header crc / trailer)
+    private final byte[] fixed = new byte[10];
+    private int fixedLen;
+
+    BodyDecoder(HttpResponse.ResponseInfo info, Sink<T> sink) {
+        this.sink = sink;
+        this.gzip = info.headers().firstValue("Content-Encoding").map(v -> v.strip().equalsIgnoreCase("gzip"))
+                .orElse(false);
+    }
+
+    @Override
+    public CompletionStage<T> getBody() {
+        return result;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        subscription.request(Long.MAX_VALUE);
+    }
+
+    @Override
+    public void onNext(List<ByteBuffer> item) {
+        if (result.isDone()) return;
+        try {
+            for (ByteBuffer buf : item) {
+                if (gzip) inflate(buf);
+                else write(buf);
+            }
+        } catch (IOException | RuntimeException e) {
+            subscription.cancel();
+            fail(e);
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        fail(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        if (result.isDone()) return;
+        // body rỗng (vd 204) thì không có gì để giải nén
+        if (gzip && gzipState != DONE && !(gzipState == HEADER && fixedLen == 0)) {
+            fail(new IOException("Body gzip bị cắt giữa chừng"));
+            return;
+        }
+        end();
+        try {
+            result.complete(sink.finish());
+        } catch (RuntimeException e) {
+            result.completeExceptionally(e);
+        }
+    }
+
+    private void fail(Throwable e) {
+        end();
+        result.completeExceptionally(e);
+    }
+
+    private void end() {
+        if (inflater != null) {
+            inflater.end();
+            inflater = null;
+        }
+    }
+
+    // ================= KHÔNG NÉN =================
+    private void write(ByteBuffer buf) {
+        if (buf.hasArray()) {
+            sink.write(buf.array(), buf.arrayOffset() + buf.position(), buf.remaining());
+            buf.position(buf.limit());
+            return;
+        }
+        byte[] scratch = SCRATCH.get();
+        while (buf.hasRemaining()) {
+            int n = Math.min(scratch.length, buf.remaining());
+            buf.get(scratch, 0, n);
+            sink.write(scratch, 0, n);
+        }
+    }
+
+    // ================= GZIP =================
+    private void inflate(ByteBuffer buf) throws IOException {
+        while (buf.hasRemaining()) {
+            switch (gzipState) {
+                case HEADER -> {
+                    fixed[fixedLen++] = buf.get();
+                    if (--remaining == 0) header();
+                }
+                case EXTRA_LEN -> {
+                    fixed[fixedLen++] = buf.get();
+                    if (--remaining == 0) {
+                        remaining = (fixed[0] & 0xff) | (fixed[1] & 0xff) << 8;
+                        gzipState = remaining == 0 ? afterExtra() : EXTRA;
+                    }
+                }
+                case EXTRA -> {
+                    int n = Math.min(remaining, buf.remaining());
+                    buf.position(buf.position() + n);
+                    if ((remaining -= n) == 0) gzipState = afterExtra();
+                }
+                case NAME -> {
+                    if (buf.get() == 0) gzipState = (flags & FCOMMENT) != 0 ? COMMENT : afterComment();
+                }
+                case COMMENT -> {
+                    if (buf.get() == 0) gzipState = afterComment();
+                }
+                case HEADER_CRC -> {
+                    buf.get();
+                    if (--remaining == 0) startDeflate();
+                }
+                case DEFLATE -> deflate(buf);
+                case TRAILER -> {
+                    fixed[fixedLen++] = buf.get();
+                    if (--remaining == 0) trailer();
+                }
+                default -> buf.position(buf.limit()); // dữ liệu thừa sau trailer
+            }
+        }
+    }
+
+    private void header() throws IOException {
+        if ((fixed[0] & 0xff) != 0x1f || (fixed[1] & 0xff) != 0x8b || fixed[2] != 8) {
+            throw new IOException("Body không phải gzip hợp lệ");
+        }
+        flags = fixed[3] & 0xff;
+        if ((flags & FEXTRA) != 0) {
+            gzipState = EXTRA_LEN;
+            remaining = 2;
+            fixedLen = 0;
+        } else {
+            gzipState = afterExtra();
+        }
+    }
+
+    private int afterExtra() {
+        if ((flags & FNAME) != 0) return NAME;
+        if ((flags & FCOMMENT) != 0) return COMMENT;
+        return afterComment();
+    }
+
+    private int afterComment() {
+        if ((flags & FHCRC) != 0) {
+            remaining = 2;
+            return HEADER_CRC;
+        }
+        startDeflate();
+        return DEFLATE;
+    }
+
+    private void startDeflate() {
+        gzipState = DEFLATE;
+        inflater = new Inflater(true);
+        crc = new CRC32();
+    }
+
+    /**
+     * Giải nén tới khi dùng hết {@code buf} hoặc hết khối deflate (phần còn lại của buf là trailer)
+     */
+    private void deflate(ByteBuffer buf) throws IOException {
+        byte[] out = SCRATCH.get();
+        inflater.setInput(buf);
+        try {
+            while (true) {
+                int n = inflater.inflate(out);
+                if (n > 0) {
+                    crc.update(out, 0, n);
+                    sink.write(out, 0, n);
+                } else if (inflater.finished()) {
+                    gzipState = TRAILER;
+                    remaining = 8;
+                    fixedLen = 0;
+                    return;
+                } else if (inflater.needsInput()) {
+                    return;
+                } else if (inflater.needsDictionary()) {
+                    throw new IOException("Body gzip cần dictionary");
+                }
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Body gzip hỏng: " + e.getMessage(), e);
+        } finally {
+            // buf được trả lại cho HttpClient sau onNext, inflater không được giữ tham chiếu tới nó
+            if (inflater != null) inflater.setInput(new byte[0]);
+        }
+    }
+
+    private void trailer() throws IOException {
+        long expectedCrc = le32(0);
+        long expectedSize = le32(4);
+        if (expectedCrc != crc.getValue() || expectedSize != (inflater.getBytesWritten() & 0xffffffffL)) {
+            throw new IOException("Body gzip sai CRC / độ dài");
+        }
+        gzipState = DONE;
+        end();
+    }
+
+    private long le32(int off) {
+        return (fixed[off] & 0xffL) | (fixed[off + 1] & 0xffL) << 8 | (fixed[off + 2] & 0xffL) << 16
+                | (fixed[off + 3] & 0xffL) << 24;
+    }
+}
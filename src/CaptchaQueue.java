@@ -0,0 +1,276 @@
+import java.net.CookieHandler;
+import java.net.CookieManager;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Tải trước captcha cho từng account để người nhập không phải chờ getCaptcha giữa các account.
+ * <p>
+ * Captcha gắn với cookie session, nên mỗi account cần captcha có cookie jar riêng do hàng đợi giữ
+ * ({@link #cookies(Account)}) và luồng login của account đó phải dùng đúng jar này. Ảnh được tải bất đồng bộ và
+ * decode trên thread riêng (không bao giờ trên EDT), luôn giữ sẵn captcha cho account hiện tại và {@code lookahead}
+ * account kế tiếp. Hàng đợi chỉ giữ jar của account cần captcha và bỏ đi khi account chạy xong ({@link #release}),
+ * nên bộ nhớ không tăng theo số account trong file.
+ * <p>
+ * Khi dùng làm {@link CaptchaSolver} cho batch: mỗi account cần captcha đẩy một mục "account + ảnh đã sẵn sàng"
+ * vào hàng đợi, người nhập lấy lần lượt bằng {@link #next()} / {@link #poll()} và trả lời bằng {@link Ready#submit}.
+ *
+ * @param <T> ảnh đã decode (vd ImageIcon cho Swing)
+ */
+public class CaptchaQueue<T> implements CaptchaSolver {
+
+    /**
+     * Một captcha đã sẵn sàng đang chờ người nhập
+     */
+    static final class Ready<T> {
+        private final Account account;
+        private final int index;
+        private final T image;
+        private final CompletableFuture<String> answer = new CompletableFuture<>();
+
+        Ready(Account account, int index, T image) {
+            this.account = account;
+            this.index = index;
+            this.image = image;
+        }
+
+        Account account() {
+            return account;
+        }
+
+        /**
+         * Vị trí của account trong danh sách đã {@link #plan}, -1 nếu không rõ
+         */
+        int index() {
+            return index;
+        }
+
+        T image() {
+            return image;
+        }
+
+        void submit(String code) {
+            answer.complete(code);
+        }
+
+        /**
+         * Bỏ qua account này (login coi như không nhập captcha)
+         */
+        void skip() {
+            answer.complete(null);
+        }
+
+        /**
+         * Đã trả lời, hoặc account không còn chờ nữa (vd quá thời gian) → không cần hiện
+         */
+        boolean done() {
+            return answer.isDone();
+        }
+    }
+
+    private static final class Slot<T> {
+        final CookieManager cookies = new CookieManager();
+        volatile CompletableFuture<T> captcha;
+    }
+
+    private static final int SEARCH_WINDOW = 256;
+
+    private final MfoApi api;
+    private final Function<byte[], T> decoder;
+    private final int lookahead;
+    private final Runnable onReady;
+    private final ExecutorService decodeExecutor = Executors.newSingleThreadExecutor(ApiClient.daemonThreads("mfo-captcha-decode-"));
+    private final Map<String, Slot<T>> slots = new ConcurrentHashMap<>();
+    private final BlockingQueue<Ready<T>> ready = new LinkedBlockingQueue<>();
+
+    private volatile List<Account> order = List.of();
+    private volatile Predicate<Account> needsCaptcha = a -> true;
+    private volatile int cursor; // vị trí gần nhất trong order, để tìm account mà không quét cả danh sách
+
+    /**
+     * @param decoder chuyển byte ảnh thành ảnh hiển thị được, chạy ngoài EDT
+     * @param onReady gọi (từ thread bất kỳ) mỗi khi có mục mới trong hàng đợi, có thể null
+     */
+    public CaptchaQueue(MfoApi api, Function<byte[], T> decoder, Runnable onReady) {
+        this.api = api;
+        this.decoder = decoder;
+        this.onReady = onReady;
+        this.lookahead = Math.max(0, Config.getInt("mfo.captcha.prefetch", 3));
+    }
+
+    /**
+     * Thứ tự account sẽ chạy, để biết account nào cần tải trước (danh sách không được thay đổi sau đó)
+     *
+     * @param needsCaptcha account nào cần captcha (vd chưa có session đã lưu)
+     */
+    void plan(List<Account> order, Predicate<Account> needsCaptcha) {
+        slots.clear();
+        this.order = order;
+        this.needsCaptcha = needsCaptcha;
+        this.cursor = 0;
+    }
+
+    /**
+     * Báo vị trí hiện tại trong danh sách (vd account đang chọn trên UI)
+     */
+    void seek(int index) {
+        cursor = Math.max(0, index);
+    }
+
+    /**
+     * Cookie jar của account (captcha và login phải dùng cùng jar). Account không cần captcha nhận jar mới,
+     * hàng đợi không giữ lại.
+     */
+    CookieHandler cookies(Account account) {
+        Slot<T> slot = slots.get(account.username());
+        if (slot == null && needsCaptcha.test(account)) slot = slot(account);
+        return slot != null ? slot.cookies : new CookieManager();
+    }
+
+    /**
+     * Account đã chạy xong (thành công hay lỗi): bỏ cookie jar / captcha hàng đợi giữ cho nó
+     */
+    void release(Account account) {
+        slots.remove(account.username());
+    }
+
+    // ================= TẢI TRƯỚC =================
+
+    /**
+     * Captcha hiện tại của account (đang tải hoặc đã có), đồng thời tải trước cho các account kế tiếp
+     */
+    CompletableFuture<T> captcha(Account account) {
+        Slot<T> slot = slot(account);
+        CompletableFuture<T> f = slot.captcha;
+        if (f == null || f.isCompletedExceptionally()) f = fetch(account, slot);
+        prefetchAfter(account);
+        return f;
+    }
+
+    /**
+     * Bỏ captcha hiện tại (đã dùng cho một lần login) và tải captcha mới
+     */
+    CompletableFuture<T> refresh(Account account) {
+        CompletableFuture<T> f = fetch(account, slot(account));
+        prefetchAfter(account);
+        return f;
+    }
+
+    /**
+     * Đánh dấu captcha hiện tại đã dùng, lần sau {@link #captcha} sẽ tải lại
+     */
+    void consume(Account account) {
+        Slot<T> slot = slots.get(account.username());
+        if (slot != null) slot.captcha = null;
+    }
+
+    private CompletableFuture<T> fetch(Account account, Slot<T> slot) {
+        CompletableFuture<T> f = api.getCaptchaAsync(account, slot.cookies).thenApplyAsync(decoder, decodeExecutor);
+        slot.captcha = f;
+        return f;
+    }
+
+    private void prefetchAfter(Account account) {
+        List<Account> accounts = order;
+        int index = locate(accounts, account);
+        if (index < 0) return;
+
+        int fetched = 0;
+        for (int i = index + 1; i < accounts.size() && fetched < lookahead; i++) {
+            Account next = accounts.get(i);
+            if (!needsCaptcha.test(next)) continue;
+            Slot<T> slot = slot(next);
+            if (slot.captcha == null || slot.captcha.isCompletedExceptionally()) fetch(next, slot);
+            fetched++;
+        }
+    }
+
+    /**
+     * Tìm account quanh vị trí gần nhất (account chạy gần như theo thứ tự), -1 nếu không thấy
+     */
+    private int locate(List<Account> accounts, Account account) {
+        int from = Math.max(0, cursor - SEARCH_WINDOW);
+        int to = Math.min(accounts.size(), cursor + SEARCH_WINDOW);
+        for (int i = from; i < to; i++) {
+            if (accounts.get(i).username().equals(account.username())) {
+                cursor = i;
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private Slot<T> slot(Account account) {
+        return slots.computeIfAbsent(account.username(), u -> new Slot<>());
+    }
+
+    // ================= HÀNG ĐỢI NHẬP =================
+
+    /**
+     * Chờ captcha đã tải sẵn của account, đưa vào hàng đợi và chờ người nhập trả lời.
+     * Ảnh lấy qua cookie jar của hàng đợi; account hàng đợi không giữ jar (vd session đã lưu bị server từ chối)
+     * thì tải bằng {@code fetchImage}, theo cookie của chính luồng login.
+     */
+    @Override
+    public String solve(Account account, Callable<byte[]> fetchImage) throws Exception {
+        T image;
+        if (!slots.containsKey(account.username())) {
+            image = decoder.apply(fetchImage.call());
+        } else {
+            try {
+                image = captcha(account).get();
+            } catch (ExecutionException e) {
+                // lỗi tải lần trước → thử tải lại một lần
+                image = refresh(account).get();
+            }
+            consume(account);
+        }
+
+        Ready<T> entry = new Ready<>(account, locate(order, account), image);
+        ready.add(entry);
+        if (onReady != null) onReady.run();
+        try {
+            return entry.answer.get();
+        } finally {
+            ready.remove(entry);
+            // bị interrupt (account quá thời gian / bị hủy) khi mục đang hiện → báo để người nhập chuyển mục khác
+            if (entry.answer.cancel(false) && onReady != null) onReady.run();
+        }
+    }
+
+    /**
+     * Lấy mục kế tiếp, null nếu hàng đợi trống
+     */
+    Ready<T> poll() {
+        return ready.poll();
+    }
+
+    /**
+     * Chờ mục kế tiếp
+     */
+    Ready<T> next() throws InterruptedException {
+        return ready.take();
+    }
+
+    int pending() {
+        return ready.size();
+    }
+
+    /**
+     * Bỏ qua mọi mục đang chờ (vd khi dừng batch)
+     */
+    void skipAll() {
+        Ready<T> entry;
+        while ((entry = ready.poll()) != null) entry.skip();
+    }
+}
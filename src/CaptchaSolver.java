@@ -0,0 +1,15 @@
+import java.util.concurrent.Callable;
+
+/**
+ * Cung cấp mã captcha cho lần đăng nhập của một account
+ */
+@FunctionalInterface
+public interface CaptchaSolver {
+
+    /**
+     * @param account    account đang đăng nhập
+     * @param fetchImage tải ảnh captcha mới theo cookie của account
+     * @return mã captcha, null hoặc rỗng = bỏ qua account
+     */
+    String solve(Account account, Callable<byte[]> fetchImage) throws Exception;
+}
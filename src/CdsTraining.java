@@ -0,0 +1,121 @@
+import javax.imageio.ImageIO;
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Lượt chạy tập dượt khi đóng gói ({@code mvn -Pdist package}): JVM chạy class này với
+ * {@code -XX:ArchiveClassesAtExit=mfo.jsa}, mọi class đã nạp được ghi vào archive AppCDS để các lần khởi động sau
+ * nạp thẳng từ archive thay vì đọc, parse và verify lại từ jar.
+ * <p>
+ * Chạy đúng các đường mà người dùng chạy: batch headless qua {@link Cli} (login có captcha, chạy lại bằng session đã
+ * lưu, chặn / bất đồng bộ, text / JSON) với {@link StubServer} trong process, và dựng / vẽ các component Swing của
+ * giao diện (không mở cửa sổ nên chạy được trên máy build không có màn hình). Mọi file ghi vào thư mục tạm.
+ */
+public class CdsTraining {
+
+    private static final int ACCOUNTS = 24;
+
+    public static void main(String[] args) throws Exception {
+        Path dir = Files.createTempDirectory("mfo-cds-");
+        PrintStream out = System.out;
+        try (StubServer stub = new StubServer(StubServer.Options.fromSystemProperties().withPort(0))) {
+            stub.start();
+            System.setProperty("mfo.baseUrl", stub.baseUrl());
+            System.setProperty("mfo.rate.global", "0");
+            System.setProperty("mfo.rate.doLogin", "0");
+            System.setProperty("mfo.session.file", dir.resolve("sessions.txt").toString());
+            System.setProperty("mfo.journal.file", dir.resolve("journal.log").toString());
+            System.setProperty("mfo.calendar.file", dir.resolve("calendar.txt").toString());
+            System.setProperty("mfo.metrics.file", dir.resolve("metrics.json").toString());
+
+            Path accounts = dir.resolve("accounts.txt");
+            StringBuilder lines = new StringBuilder();
+            for (int i = 0; i < ACCOUNTS; i++) lines.append("cds").append(i).append("|pass").append(i).append('\n');
+            Files.writeString(accounts, lines, StandardCharsets.UTF_8);
+
+            System.setOut(new PrintStream(OutputStream.nullOutputStream(), false, StandardCharsets.UTF_8));
+            swing();
+
+            // lượt 1: chưa có session → captcha đọc từ stdin như --interactive
+            System.setIn(new ByteArrayInputStream("1234\n".repeat(ACCOUNTS).getBytes(StandardCharsets.UTF_8)));
+            Cli.run(Cli.Args.parse(new String[]{"--accounts=" + accounts, "--interactive", "--mode=pool"}));
+
+            // lượt 2: session + lịch điểm danh đã lưu, không journal, bất đồng bộ, log JSON
+            System.setProperty("mfo.journal.file", "-");
+            Cli.run(Cli.Args.parse(new String[]{"--accounts=" + accounts, "--mode=async", "--json"}));
+        } finally {
+            System.setOut(out);
+            deleteRecursively(dir);
+        }
+        System.out.println("✅ Tập dượt xong");
+    }
+
+    /**
+     * Nạp look and feel, dựng và vẽ ra ảnh các component mà {@link LoginApp} dùng
+     */
+    private static void swing() throws Exception {
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(120, 40, BufferedImage.TYPE_INT_RGB), "png", png);
+
+        SwingUtilities.invokeAndWait(() -> {
+            try {
+                Class.forName(LoginApp.class.getName());
+                Class.forName(UiRenderer.class.getName());
+                Class.forName(JFrame.class.getName());
+                Class.forName(JDialog.class.getName());
+
+                JList<Account> list = new JList<>(new Account[]{new Account("cds", "cds")});
+                JProgressBar progress = new JProgressBar(0, 100);
+                progress.setUI(new LoginApp.GradientProgressUI());
+                progress.setStringPainted(true);
+                progress.setValue(40);
+                JTextArea log = new JTextArea("🚀 tập dượt\n");
+                JPanel captcha = new JPanel(new GridLayout(1, 3));
+                captcha.add(new JLabel(new ImageIcon(ImageIO.read(new ByteArrayInputStream(png.toByteArray())))));
+                captcha.add(new JTextField(6));
+                captcha.add(new JButton("Refresh Captcha"));
+
+                JPanel root = new JPanel(new BorderLayout());
+                root.add(new JScrollPane(list), BorderLayout.WEST);
+                root.add(new JScrollPane(log), BorderLayout.CENTER);
+                root.add(captcha, BorderLayout.NORTH);
+                root.add(progress, BorderLayout.SOUTH);
+                root.setSize(800, 600);
+                layout(root);
+
+                BufferedImage image = new BufferedImage(800, 600, BufferedImage.TYPE_INT_ARGB);
+                Graphics2D g = image.createGraphics();
+                root.printAll(g);
+                g.dispose();
+            } catch (ReflectiveOperationException | IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    private static void layout(Container c) {
+        c.doLayout();
+        for (Component child : c.getComponents()) {
+            if (child instanceof Container container) layout(container);
+        }
+    }
+
+    private static void deleteRecursively(Path dir) {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        } catch (IOException e) {
+            System.err.println("⚠️ Không xóa được thư mục tạm " + dir + ": " + e.getMessage());
+        }
+    }
+}
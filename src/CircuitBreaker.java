@@ -0,0 +1,157 @@
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Circuit breaker dùng chung cho mọi call tới mfapi.
+ * Khi tỉ lệ lỗi trong N call gần nhất vượt ngưỡng → OPEN: mọi call phải chờ (batch tạm dừng)
+ * hết thời gian nghỉ, sau đó cho một call thử (HALF_OPEN); thành công thì đóng lại, lỗi thì nghỉ tiếp.
+ * <p>
+ * Dùng ReentrantLock thay cho synchronized/wait để thread ảo đang chờ không giữ chặt carrier thread.
+ */
+public class CircuitBreaker {
+
+    record Options(int windowSize, int minCalls, double errorRate, Duration openDuration) {
+
+        static Options fromSystemProperties() {
+            return new Options(
+                    Math.max(1, Config.getInt("mfo.breaker.window", 20)),
+                    Math.max(1, Config.getInt("mfo.breaker.minCalls", 10)),
+                    Config.getInt("mfo.breaker.errorPercent", 50) / 100.0,
+                    Duration.ofMillis(Config.getLong("mfo.breaker.openMs", 15_000)));
+        }
+    }
+
+    enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final Options options;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final boolean[] window;   // true = lỗi
+    private int pos;
+    private int count;
+    private int errors;
+
+    private State state = State.CLOSED;
+    private long openUntil;
+    private boolean probeInFlight;
+
+    public CircuitBreaker(Options options) {
+        this.options = options;
+        this.window = new boolean[options.windowSize()];
+    }
+
+    /**
+     * Chờ tới khi được phép gọi API
+     */
+    void acquire() throws InterruptedException {
+        lock.lock();
+        try {
+            long waitMs;
+            while ((waitMs = tryAcquire()) > 0) {
+                changed.await(waitMs, TimeUnit.MILLISECONDS);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Bản không chặn của {@link #acquire()} (dùng cho luồng bất đồng bộ)
+     *
+     * @return 0 nếu được gọi ngay, ngược lại số ms nên chờ trước khi thử lại
+     */
+    long tryAcquire() {
+        lock.lock();
+        try {
+            if (state == State.OPEN) {
+                long waitMs = (openUntil - System.nanoTime()) / 1_000_000;
+                if (waitMs > 0) return waitMs;
+                state = State.HALF_OPEN;
+                probeInFlight = false;
+            }
+            if (state == State.HALF_OPEN) {
+                if (probeInFlight) return Math.max(1, options.openDuration().toMillis() / 10);
+                probeInFlight = true;
+            }
+            return 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Ghi nhận kết quả một call (lỗi = exception kết nối / timeout hoặc HTTP 5xx).
+     * Mỗi call đã được cho phép phải kết thúc bằng đúng một lần {@link #record} hoặc {@link #release}.
+     */
+    void record(boolean success) {
+        lock.lock();
+        try {
+            switch (state) {
+                case HALF_OPEN -> {
+                    probeInFlight = false;
+                    if (success) {
+                        state = State.CLOSED;
+                        pos = count = errors = 0;
+                        System.err.println("✅ Circuit breaker đóng lại, tiếp tục chạy");
+                    } else {
+                        open();
+                    }
+                    changed.signalAll();
+                }
+                case CLOSED -> {
+                    if (count == window.length) {
+                        if (window[pos]) errors--;
+                    } else {
+                        count++;
+                    }
+                    window[pos] = !success;
+                    if (!success) errors++;
+                    pos = (pos + 1) % window.length;
+
+                    if (count >= options.minCalls() && errors >= options.errorRate() * count) open();
+                }
+                case OPEN -> {
+                    // call bắt đầu trước khi mở mạch, bỏ qua
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Call đã được cho phép nhưng kết thúc mà không có kết quả (bị hủy / interrupt trước khi có response).
+     * Nếu đó là call thử của HALF_OPEN thì nhả chỗ cho call khác thử, không thì breaker chờ mãi kết quả của nó.
+     */
+    void release() {
+        lock.lock();
+        try {
+            if (state == State.HALF_OPEN && probeInFlight) {
+                probeInFlight = false;
+                changed.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    State state() {
+        lock.lock();
+        try {
+            return state;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openUntil = System.nanoTime() + options.openDuration().toNanos();
+        System.err.println("⛔ Tỉ lệ lỗi cao (" + errors + "/" + count + "), tạm dừng "
+                + options.openDuration().toMillis() / 1000.0 + "s");
+    }
+}
@@ -0,0 +1,234 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Chạy không cần Swing (server / scheduler không có màn hình).
+ * <pre>
+ * java Cli [--accounts=accounts.txt] [--parallelism=N] [--mode=pool|async|virtual] [--json] [--interactive] [--daemon]
+ *          [--shard-dir=DIR [--worker=ID] [--shard-report]]
+ * java LoginApp --headless ...
+ * </pre>
+ * Account chưa có session đã lưu cần captcha: với --interactive ảnh captcha được lưu ra file và
+ * mã được đọc từ stdin, ngược lại account đó bị bỏ qua. {@code --daemon} chạy nền, mỗi ngày một lần ({@link Daemon}).
+ * {@code --shard-dir} chia danh sách account cho nhiều process / máy dùng chung thư mục đó ({@link Shard});
+ * {@code --shard-report} chỉ in báo cáo gộp của mọi worker trong ngày.
+ * <p>
+ * Exit code: 0 = tất cả thành công, 1 = có account lỗi, 2 = không account nào thành công,
+ * 3 = không đọc được danh sách account hoặc tham số sai.
+ */
+public class Cli {
+
+    static final int EXIT_OK = 0;
+    static final int EXIT_PARTIAL = 1;
+    static final int EXIT_ALL_FAILED = 2;
+    static final int EXIT_CONFIG = 3;
+
+    record Args(String accountsFile, int parallelism, BatchRunner.Mode mode, boolean json, boolean interactive,
+                boolean daemon, String shardDir, String worker, boolean shardReport) {
+
+        /**
+         * @throws IllegalArgumentException nếu giá trị tham số sai (vd --parallelism không phải số nguyên dương, --mode không phải pool / async / virtual)
+         */
+        static Args parse(String[] args) {
+            String accountsFile = "accounts.txt";
+            int parallelism = -1;
+            BatchRunner.Mode mode = null;
+            boolean json = false;
+            boolean interactive = false;
+            boolean daemon = false;
+            String shardDir = null;
+            String worker = null;
+            boolean shardReport = false;
+
+            for (String arg : args) {
+                if (arg.startsWith("--accounts=")) accountsFile = arg.substring("--accounts=".length());
+                else if (arg.startsWith("--parallelism=")) parallelism = positive("--parallelism", arg.substring("--parallelism=".length()));
+                else if (arg.startsWith("--mode=")) mode = mode(arg.substring("--mode=".length()));
+                else if (arg.equals("--json")) json = true;
+                else if (arg.equals("--interactive")) interactive = true;
+                else if (arg.equals("--daemon")) daemon = true;
+                else if (arg.startsWith("--shard-dir=")) shardDir = arg.substring("--shard-dir=".length());
+                else if (arg.startsWith("--worker=")) worker = arg.substring("--worker=".length());
+                else if (arg.equals("--shard-report")) shardReport = true;
+                else if (!arg.equals("--headless")) System.err.println("⚠️ Bỏ qua tham số không hỗ trợ: " + arg);
+            }
+            if (shardDir == null && (worker != null || shardReport)) shardDir = Config.get("mfo.shard.dir", "shards");
+            return new Args(accountsFile, parallelism, mode, json, interactive, daemon, shardDir, worker, shardReport);
+        }
+
+        private static int positive(String name, String value) {
+            try {
+                int n = Integer.parseInt(value.strip());
+                if (n > 0) return n;
+            } catch (NumberFormatException ignored) {
+            }
+            throw new IllegalArgumentException(name + " phải là số nguyên dương, nhận được: " + value);
+        }
+
+        private static BatchRunner.Mode mode(String value) {
+            try {
+                return BatchRunner.Mode.valueOf(value.strip().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("--mode phải là pool, async hoặc virtual, nhận được: " + value);
+            }
+        }
+    }
+
+    public static void main(String[] args) {
+        Args parsed;
+        try {
+            parsed = Args.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println("❌ " + e.getMessage());
+            System.exit(EXIT_CONFIG);
+            return;
+        }
+        System.exit(run(parsed));
+    }
+
+    static int run(Args args) {
+        ConsoleListener console = new ConsoleListener(System.out, args.json());
+        if (args.daemon()) {
+            try {
+                new Daemon(args, console, Daemon.Options.fromSystemProperties()).run();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return EXIT_OK;
+        }
+        if (args.shardReport()) {
+            Shard.Report report = new Shard(shardOptions(args), console::info).report();
+            printReport(console, report);
+            return exitCode(report.success(), report.failed());
+        }
+
+        try (AccountFile accounts = AccountFile.open(args.accountsFile(), (lineNo, reason) ->
+                console.info("⚠️ " + args.accountsFile() + " dòng " + lineNo + ": " + reason))) {
+            if (accounts.isEmpty()) {
+                console.info("❌ Không có account nào trong " + args.accountsFile());
+                return EXIT_CONFIG;
+            }
+            return run(args, console, accounts);
+        } catch (IOException e) {
+            console.info("❌ Không thể load account từ file: " + e.getMessage());
+            return EXIT_CONFIG;
+        }
+    }
+
+    private static int run(Args args, ConsoleListener console, List<Account> accounts) {
+
+        TokenStore tokens = TokenStore.fromSystemProperties();
+        tokens.load();
+        RunJournal journal = RunJournal.fromSystemProperties();
+        if (journal != null) journal.open();
+        SignInCalendar calendar = SignInCalendar.fromSystemProperties();
+        if (calendar != null) calendar.load();
+
+        BatchRunner.Options defaults = BatchRunner.Options.fromSystemProperties();
+        BatchRunner.Options options = args.parallelism() > 0 ? defaults.withParallelism(args.parallelism()) : defaults;
+        if (args.mode() != null) options = options.withMode(args.mode());
+
+        ApiClient api = new ApiClient(ApiClient.Options.fromSystemProperties());
+        CaptchaSolver solver = args.interactive() ? new StdinCaptchaSolver(console) : (account, fetchImage) -> {
+            console.log(account, "⚠️ Chưa có session đã lưu, cần chạy với --interactive để nhập captcha");
+            return null;
+        };
+
+        console.info("🔄 Đang xử lý " + accounts.size() + " account (" + tokens.size() + " session đã lưu)");
+        BatchRunner runner = new BatchRunner(api, solver, console, tokens, journal, calendar, options);
+        BatchRunner.ProgressCallback progress = (account, ok, done, total) ->
+                console.info((ok ? "✅ " : "❌ ") + done + "/" + total + " " + account.username());
+        Shard shard = args.shardDir() != null ? new Shard(shardOptions(args), console::info) : null;
+        try {
+            BatchRunner.Summary summary;
+            if (shard == null) {
+                summary = runner.runAll(accounts, progress);
+            } else {
+                shard.join();
+                console.info("🧩 Worker " + shard.worker() + " nhận account theo consistent hash trong " + args.shardDir());
+                summary = shard.runAll(runner, accounts, progress);
+            }
+
+            console.info("✅ Xong " + summary.success() + "/" + summary.total() + ", lỗi " + summary.failed()
+                    + " (" + summary.elapsedMs() / 1000 + "s)");
+            api.latencySummary().lines().forEach(console::info);
+            api.metrics().export();
+
+            if (shard != null) {
+                // báo cáo gộp mọi worker; chưa đủ (mfo.shard.wait=false) thì exit code theo phần của worker này
+                Shard.Report report = shard.report();
+                printReport(console, report);
+                if (report.total() >= accounts.size()) return exitCode(report.success(), report.failed());
+            }
+            return exitCode(summary.success(), summary.failed());
+        } catch (IOException e) {
+            console.info("❌ Không dùng được thư mục shard " + args.shardDir() + ": " + e.getMessage());
+            return EXIT_CONFIG;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return EXIT_ALL_FAILED;
+        } finally {
+            if (shard != null) shard.close();
+            if (journal != null) journal.close();
+            api.shutdown();
+        }
+    }
+
+    private static int exitCode(int success, int failed) {
+        if (failed == 0) return EXIT_OK;
+        return success > 0 ? EXIT_PARTIAL : EXIT_ALL_FAILED;
+    }
+
+    private static Shard.Options shardOptions(Args args) {
+        Shard.Options options = Shard.Options.fromSystemProperties().withDir(Path.of(args.shardDir()));
+        return args.worker() != null ? options.withWorker(args.worker()) : options;
+    }
+
+    private static void printReport(ConsoleListener console, Shard.Report report) {
+        console.info("📋 Tổng hợp mọi worker: " + report.success() + "/" + report.total() + " thành công, lỗi "
+                + report.failed());
+        report.byWorker().forEach((worker, count) -> console.info("   " + worker + ": " + count + " account"));
+        List<String> failed = report.failedAccounts();
+        if (!failed.isEmpty()) console.info("   Lỗi: " + String.join(", ", failed.subList(0, Math.min(50, failed.size())))
+                + (failed.size() > 50 ? " ... (+" + (failed.size() - 50) + ")" : ""));
+    }
+
+    /**
+     * Lưu ảnh captcha ra file tạm, đọc mã từ stdin (lần lượt từng account)
+     */
+    static class StdinCaptchaSolver implements CaptchaSolver {
+
+        private final ConsoleListener console;
+        private final BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        private final ReentrantLock lock = new ReentrantLock();
+
+        StdinCaptchaSolver(ConsoleListener console) {
+            this.console = console;
+        }
+
+        @Override
+        public String solve(Account account, Callable<byte[]> fetchImage) throws Exception {
+            byte[] image = fetchImage.call();
+            lock.lock();
+            try {
+                Path file = Files.createTempFile("captcha-" + account.username() + "-", ".png");
+                Files.write(file, image);
+                console.info("⌨️ Nhập captcha cho " + account.username() + " (ảnh: " + file + "):");
+                try {
+                    return in.readLine();
+                } finally {
+                    Files.deleteIfExists(file);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
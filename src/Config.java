@@ -0,0 +1,51 @@
+/**
+ * Đọc cấu hình từ System properties (-Dmfo.xxx=...), có giá trị mặc định
+ */
+public class Config {
+
+    private Config() {
+    }
+
+    static String get(String key, String def) {
+        String value = System.getProperty(key);
+        return (value == null || value.isBlank()) ? def : value.strip();
+    }
+
+    static int getInt(String key, int def) {
+        String value = get(key, null);
+        if (value == null) return def;
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            System.err.println("⚠️ Cấu hình sai " + key + "=" + value + ", dùng mặc định " + def);
+            return def;
+        }
+    }
+
+    static long getLong(String key, long def) {
+        String value = get(key, null);
+        if (value == null) return def;
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            System.err.println("⚠️ Cấu hình sai " + key + "=" + value + ", dùng mặc định " + def);
+            return def;
+        }
+    }
+
+    static double getDouble(String key, double def) {
+        String value = get(key, null);
+        if (value == null) return def;
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            System.err.println("⚠️ Cấu hình sai " + key + "=" + value + ", dùng mặc định " + def);
+            return def;
+        }
+    }
+
+    static boolean getBool(String key, boolean def) {
+        String value = get(key, null);
+        return value == null ? def : Boolean.parseBoolean(value);
+    }
+}
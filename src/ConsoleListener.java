@@ -0,0 +1,76 @@
+import java.io.PrintStream;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * In log / trạng thái của từng account ra stdout: dạng text hoặc JSON lines (mỗi sự kiện một dòng)
+ */
+public class ConsoleListener implements RunListener {
+
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("HH:mm:ss.SSS");
+
+    private final PrintStream out;
+    private final boolean json;
+
+    public ConsoleListener(PrintStream out, boolean json) {
+        this.out = out;
+        this.json = json;
+    }
+
+    @Override
+    public void log(Account account, String message) {
+        print(account, "log", message);
+    }
+
+    @Override
+    public void status(Account account, String message) {
+        // text: status trùng nội dung với log, chỉ in ở dạng JSON
+        if (json) print(account, "status", message);
+    }
+
+    @Override
+    public void step(Account account, Step step) {
+        if (json) print(account, "step", step.name());
+    }
+
+    /**
+     * Sự kiện không gắn với account (bắt đầu / tổng kết)
+     */
+    void info(String message) {
+        print(null, "info", message);
+    }
+
+    private void print(Account account, String event, String message) {
+        String line;
+        if (json) {
+            line = "{\"ts\":" + System.currentTimeMillis()
+                    + ",\"event\":\"" + event + "\""
+                    + (account == null ? "" : ",\"account\":" + quote(account.username()))
+                    + ",\"message\":" + quote(message) + "}";
+        } else {
+            line = LocalTime.now().format(TIME) + " " + (account == null ? "" : "[" + account.username() + "] ") + message;
+        }
+        synchronized (out) {
+            out.println(line);
+        }
+    }
+
+    static String quote(String s) {
+        StringBuilder sb = new StringBuilder(s.length() + 2).append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+                }
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
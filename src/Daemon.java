@@ -0,0 +1,172 @@
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.function.Predicate;
+
+/**
+ * Chạy nền liên tục ({@code java Cli --daemon}): mỗi ngày vào giờ cấu hình, theo múi giờ của {@link MfoApi#CLOCK},
+ * chạy mọi account còn session đã lưu. Thời điểm bắt đầu của các account được giãn đều trong một khoảng,
+ * để không dồn request vào server ngay lúc đổi ngày.
+ * <p>
+ * Giữ một JVM và một {@link ApiClient} (JIT, rate limiter, circuit breaker, metrics) giữa các lần chạy. File account /
+ * session / lịch điểm danh được đọc lại trước mỗi lần chạy để nhận thay đổi từ bên ngoài (vd vừa login bằng giao diện).
+ * Account chưa có session bị bỏ qua: cần login tay một lần để lưu session. Hạn session được kéo dài đủ để
+ * session dùng hôm qua vẫn còn hạn ở lần chạy hôm nay; chỉ khi server trả lời từ chối token thì account mới rời
+ * khỏi daemon, còn lỗi mạng / server chỉ làm account lỗi ở lần chạy đó. Lần chạy gặp lỗi không lường trước
+ * được ghi lại và daemon chờ lần chạy tiếp theo.
+ */
+public class Daemon {
+
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss z");
+
+    /**
+     * @param at     giờ bắt đầu mỗi ngày
+     * @param window các account bắt đầu rải đều trong khoảng này kể từ {@code at}
+     */
+    record Options(LocalTime at, Duration window) {
+
+        static Options fromSystemProperties() {
+            return new Options(
+                    parseTime(Config.get("mfo.daemon.at", "00:05")),
+                    Duration.ofMinutes(Math.max(0, Config.getLong("mfo.daemon.windowMin", 60))));
+        }
+
+        static LocalTime parseTime(String value) {
+            try {
+                return LocalTime.parse(value);
+            } catch (DateTimeParseException e) {
+                System.err.println("⚠️ Cấu hình sai mfo.daemon.at=" + value + ", dùng mặc định 00:05");
+                return LocalTime.of(0, 5);
+            }
+        }
+    }
+
+    private final Cli.Args args;
+    private final ConsoleListener console;
+    private final Options options;
+
+    private final ApiClient api = new ApiClient(ApiClient.Options.fromSystemProperties());
+    private final TokenStore tokens;
+    private final RunJournal journal = RunJournal.fromSystemProperties();
+    private final SignInCalendar calendar = SignInCalendar.fromSystemProperties();
+    private LocalDate lastRun;
+
+    public Daemon(Cli.Args args, ConsoleListener console, Options options) {
+        this.args = args;
+        this.console = console;
+        this.options = options;
+        // hai lần chạy cách nhau tới 25 giờ (đổi giờ mùa hè) cộng khoảng giãn: session dùng hôm qua phải còn hạn hôm nay
+        this.tokens = TokenStore.fromSystemProperties().withMinTtl(Duration.ofHours(26).plus(options.window()));
+    }
+
+    /**
+     * Chạy tới khi process bị dừng (hoặc thread bị interrupt)
+     */
+    void run() throws InterruptedException {
+        if (journal != null) journal.open();
+        Thread flushOnExit = new Thread(this::flush, "mfo-daemon-exit");
+        Runtime.getRuntime().addShutdownHook(flushOnExit);
+
+        console.info("🕰️ Chạy nền: mỗi ngày lúc " + options.at() + " (" + MfoApi.CLOCK.getZone() + "), giãn trong "
+                + options.window().toMinutes() + " phút");
+        try {
+            while (true) {
+                ZonedDateTime now = ZonedDateTime.now(MfoApi.CLOCK);
+                ZonedDateTime next = nextRun(now);
+                if (next.isAfter(now)) {
+                    console.info("⏰ Lần chạy tiếp theo: " + next.format(TIME));
+                    sleepUntil(next);
+                }
+                // chạy trễ (vd vừa khởi động giữa khoảng giãn) thì rải account trong phần còn lại của khoảng
+                ZonedDateTime windowEnd = next.with(options.at()).plus(options.window());
+                try {
+                    runOnce(Duration.between(ZonedDateTime.now(MfoApi.CLOCK), windowEnd));
+                } catch (RuntimeException e) {
+                    // một lần chạy lỗi không được dừng daemon: ghi lại rồi chờ lần chạy tiếp theo
+                    console.info("❌ Lỗi không xác định trong lần chạy ngày " + lastRun + ": " + e);
+                    e.printStackTrace();
+                }
+            }
+        } finally {
+            flush();
+            if (journal != null) journal.close();
+            api.shutdown();
+            try {
+                Runtime.getRuntime().removeShutdownHook(flushOnExit);
+            } catch (IllegalStateException ignored) {
+                // JVM đang tắt
+            }
+        }
+    }
+
+    /**
+     * Hôm nay lúc {@code at} nếu chưa tới; ngay bây giờ nếu đang trong khoảng giãn của hôm nay mà chưa chạy;
+     * còn lại là ngày mai
+     */
+    ZonedDateTime nextRun(ZonedDateTime now) {
+        ZonedDateTime today = now.toLocalDate().atTime(options.at()).atZone(now.getZone());
+        if (now.isBefore(today)) return today;
+        if (now.isBefore(today.plus(options.window())) && !now.toLocalDate().equals(lastRun)) return now;
+        return now.toLocalDate().plusDays(1).atTime(options.at()).atZone(now.getZone());
+    }
+
+    /**
+     * Ngủ từng đoạn ngắn và xem lại giờ, để đồng hồ máy bị chỉnh / máy ngủ dậy không làm lỡ giờ chạy
+     */
+    private static void sleepUntil(ZonedDateTime time) throws InterruptedException {
+        long remainingMs;
+        while ((remainingMs = Duration.between(ZonedDateTime.now(MfoApi.CLOCK), time).toMillis()) > 0) {
+            Thread.sleep(Math.min(remainingMs, 60_000));
+        }
+    }
+
+    private void runOnce(Duration spread) throws InterruptedException {
+        lastRun = MfoApi.today();
+        tokens.load();
+        if (calendar != null) calendar.load();
+        if (journal != null) journal.compact();
+
+        try (AccountFile accounts = AccountFile.open(args.accountsFile(), (lineNo, reason) ->
+                console.info("⚠️ " + args.accountsFile() + " dòng " + lineNo + ": " + reason))) {
+            // lọc trong lúc duyệt file, không dựng danh sách account trong bộ nhớ
+            Predicate<Account> hasSession = account -> tokens.has(account.username());
+            int total = accounts.size();
+            int ready = (int) accounts.stream().filter(hasSession).count();
+            console.info("🌅 Chạy ngày " + lastRun + ": " + ready + "/" + total + " account có session đã lưu"
+                    + (ready < total ? " (account còn lại cần login bằng giao diện hoặc --interactive)" : ""));
+            if (ready > 0) run(() -> accounts.stream().filter(hasSession).iterator(), ready, spread);
+        } catch (IOException e) {
+            console.info("❌ Không thể load account từ file: " + e.getMessage());
+        }
+    }
+
+    private void run(Iterable<Account> ready, int count, Duration spread) throws InterruptedException {
+        BatchRunner.Options defaults = BatchRunner.Options.fromSystemProperties();
+        BatchRunner.Options batch = args.parallelism() > 0 ? defaults.withParallelism(args.parallelism()) : defaults;
+        if (args.mode() != null) batch = batch.withMode(args.mode());
+        batch = batch.withSpread(Math.max(0, spread.toMillis()));
+
+        CaptchaSolver solver = (account, fetchImage) -> {
+            console.log(account, "⚠️ Session đã lưu không còn hợp lệ, cần login lại bằng giao diện hoặc --interactive");
+            return null;
+        };
+        BatchRunner.Summary summary = new BatchRunner(api, solver, console, tokens, journal, calendar, batch)
+                .runAll(ready, count, (account, ok, done, total) ->
+                        console.info((ok ? "✅ " : "❌ ") + done + "/" + total + " " + account.username()));
+
+        console.info("✅ Xong " + summary.success() + "/" + summary.total() + ", lỗi " + summary.failed()
+                + " (" + summary.elapsedMs() / 1000 + "s)");
+        api.latencySummary().lines().forEach(console::info);
+        api.metrics().export();
+    }
+
+    private void flush() {
+        tokens.flush();
+        if (journal != null) journal.flush();
+        if (calendar != null) calendar.flush();
+    }
+}
@@ -0,0 +1,123 @@
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Đo throughput và độ trễ đầu-cuối (login → doTask) của cả batch với N account trên {@link StubServer},
+ * lần lượt ở từng mức song song:
+ * <pre>
+ * java -Dmfo.stub.latencyMs=50 -Dmfo.stub.errorPercent=2 LoadTest --accounts=500 --concurrency=1,8,32,128 --mode=async
+ * </pre>
+ * Rate limiter phía client mặc định tắt (mfo.rate.global=0, mfo.rate.doLogin=0) để đo server chứ không đo limiter;
+ * bật lại bằng -D như khi chạy thật. Không dùng sessions.txt / journal / lịch điểm danh: account nào cũng login.
+ */
+public class LoadTest {
+
+    record Args(int accounts, int[] concurrency, BatchRunner.Mode mode, boolean verbose) {
+
+        static Args parse(String[] args) {
+            int accounts = 200;
+            int[] concurrency = {1, 4, 16, 64};
+            BatchRunner.Mode mode = BatchRunner.Options.fromSystemProperties().mode();
+            boolean verbose = false;
+            for (String arg : args) {
+                if (arg.startsWith("--accounts=")) accounts = Integer.parseInt(arg.substring("--accounts=".length()));
+                else if (arg.startsWith("--concurrency=")) concurrency = Arrays.stream(arg.substring("--concurrency=".length())
+                        .split(",")).map(String::strip).mapToInt(Integer::parseInt).toArray();
+                else if (arg.startsWith("--mode=")) mode = BatchRunner.Options.parseMode(arg.substring("--mode=".length()));
+                else if (arg.equals("--verbose")) verbose = true;
+                else System.err.println("⚠️ Bỏ qua tham số không hỗ trợ: " + arg);
+            }
+            return new Args(accounts, concurrency, mode, verbose);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        setIfAbsent("mfo.rate.global", "0");
+        setIfAbsent("mfo.rate.doLogin", "0");
+        setIfAbsent("mfo.metrics.file", "-");
+        Args a = Args.parse(args);
+
+        List<Account> accounts = new AbstractList<>() {
+            @Override
+            public Account get(int index) {
+                return new Account("load" + index, "pass" + index);
+            }
+
+            @Override
+            public int size() {
+                return a.accounts();
+            }
+        };
+
+        try (StubServer stub = new StubServer(StubServer.Options.fromSystemProperties().withPort(0))) {
+            stub.start();
+            System.out.println("🧪 " + a.accounts() + " account, mode=" + a.mode().name().toLowerCase() + ", stub " + stub.baseUrl());
+            System.out.printf("%6s %6s %6s %8s %9s %8s %8s %8s %8s %7s %7s %8s%n",
+                    "conc", "ok", "fail", "ms", "acc/s", "req/s", "p50ms", "p95ms", "p99ms", "err", "429", "B/acc");
+            for (int parallelism : a.concurrency()) {
+                stub.reset();
+                runLevel(stub, accounts, Math.max(1, parallelism), a);
+            }
+        }
+    }
+
+    /**
+     * Chạy cả batch ở một mức song song, in một dòng kết quả
+     */
+    private static void runLevel(StubServer stub, List<Account> accounts, int parallelism, Args a)
+            throws InterruptedException {
+        ApiClient api = new ApiClient(ApiClient.Options.fromSystemProperties().withBaseUrl(stub.baseUrl()));
+        Metrics.Histogram latency = new Metrics.Histogram();
+        Map<String, Long> started = new ConcurrentHashMap<>();
+
+        // bước đầu tiên của account = lúc bắt đầu chạy (BatchRunner lấy account khi có chỗ trống)
+        RunListener listener = new RunListener() {
+            @Override
+            public void log(Account account, String message) {
+            }
+
+            @Override
+            public void status(Account account, String message) {
+            }
+
+            @Override
+            public void step(Account account, Step step) {
+                started.putIfAbsent(account.username(), System.nanoTime());
+            }
+        };
+        CaptchaSolver solver = (account, fetchImage) -> {
+            fetchImage.call();
+            return "1234";
+        };
+        BatchRunner.Options options = BatchRunner.Options.fromSystemProperties()
+                .withParallelism(parallelism)
+                .withMode(a.mode());
+
+        try {
+            BatchRunner.Summary summary = new BatchRunner(api, solver, listener, null, null, null, options)
+                    .runAll(accounts, (account, ok, done, total) -> {
+                        Long start = started.remove(account.username());
+                        if (start != null) latency.record(System.nanoTime() - start);
+                    });
+
+            StubServer.Stats stats = stub.stats();
+            double seconds = Math.max(1, summary.elapsedMs()) / 1000.0;
+            System.out.printf("%6d %6d %6d %8d %9.1f %8.1f %8.1f %8.1f %8.1f %7d %7d %8d%n",
+                    parallelism, summary.success(), summary.failed(), summary.elapsedMs(),
+                    summary.total() / seconds, stats.requests() / seconds,
+                    latency.percentileMicros(0.50) / 1e3, latency.percentileMicros(0.95) / 1e3,
+                    latency.percentileMicros(0.99) / 1e3, stats.errors(), stats.throttled(),
+                    stats.bytesOut() / Math.max(1, summary.total()));
+            if (a.verbose()) System.out.print(api.latencySummary());
+        } finally {
+            api.shutdown();
+        }
+    }
+
+    private static void setIfAbsent(String key, String value) {
+        if (System.getProperty(key) == null) System.setProperty(key, value);
+    }
+}
@@ -1,29 +1,26 @@
+import javax.imageio.ImageIO;
 import javax.swing.*;
 import javax.swing.plaf.basic.BasicProgressBarUI;
 import java.awt.*;
-import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.CookieHandler;
 import java.util.ArrayList;
-import java.util.Calendar;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public class LoginApp extends JFrame {
 
     // ================= CONFIG =================
-    static final String BASE_URL = "http://mfapi.818long.com";
-
-    record Account(String username, String password) {
-    }
+    static final String BASE_URL = "http://mfapi.818long.com"; // mặc định, đổi bằng -Dmfo.baseUrl
 
     // ================= DATA =================
-    private final List<Account> accounts = new ArrayList<>();
+    private AccountFile accounts = AccountFile.empty();
+    private final List<String> loadWarnings = new ArrayList<>();
     private JList<Account> accountList;
 
-    private String token;
-    private String userId;
-
     // ================= UI =================
     private JLabel captchaLabel = new JLabel();
     private JTextField captchaField = new JTextField();
@@ -31,11 +28,10 @@ public class LoginApp extends JFrame {
     private JProgressBar progressBar = new JProgressBar(0, 100);
     private JTextArea logArea = new JTextArea();
     private JScrollPane logScrollPane;
-
-    // animation
-    private Timer progressTimer;
-    private int currentValue = 0;
-    private int targetValue = 0;
+    private JButton runBtn = new JButton("LOGIN & RUN");
+    private JButton runAllBtn = new JButton("RUN ALL");
+    private JButton refreshBtn = new JButton("Refresh Captcha");
+    private UiRenderer renderer;
 
     // colors
     private static final Color COLOR_IDLE = new Color(180, 180, 180);
@@ -45,17 +41,26 @@ public class LoginApp extends JFrame {
     private static final Color COLOR_SUCCESS = new Color(60, 179, 113);
     private static final Color COLOR_ERROR = new Color(220, 20, 60);
 
+    private static final int MAX_LOAD_WARNINGS = 20;
+
     // ================= MAIN =================
     public static void main(String[] args) {
+        if (List.of(args).contains("--headless")) {
+            Cli.main(args);
+            return;
+        }
         SwingUtilities.invokeLater(LoginApp::new);
     }
 
     public LoginApp() {
         loadAccountsFromFile("accounts.txt");
+        tokens.load();
+        if (journal != null) journal.open();
+        if (calendar != null) calendar.load();
         setTitle("Auto Login Reward - MFO v1.2");
         setDefaultCloseOperation(EXIT_ON_CLOSE);
 
-        // set icon (icon.png cùng thư mục src)
+        // set icon (icon.png ở gốc classpath: thư mục src khi chạy từ source, trong jar khi build bằng Maven)
         try {
             Image icon = Toolkit.getDefaultToolkit().getImage(LoginApp.class.getResource("/icon.png"));
             setIconImage(icon);
@@ -63,7 +68,10 @@ public class LoginApp extends JFrame {
         }
 
         buildUI();
-        fetchCaptcha(true);
+        renderer.start();
+        loadWarnings.forEach(this::appendLog);
+        captchas.plan(accounts, this::needsCaptcha);
+        showCaptcha(accountList.getSelectedValue(), false, true);
 
         pack();
         setResizable(false);
@@ -74,36 +82,71 @@ public class LoginApp extends JFrame {
     // ================= UI BUILD =================
     private void buildUI() {
         // -------- LEFT PANEL --------
-        DefaultListModel<Account> listModel = new DefaultListModel<>();
-        accounts.forEach(listModel::addElement);
+        // model đọc thẳng từ file: JList chỉ đọc các dòng đang hiển thị
+        accountList = new JList<>(new AbstractListModel<>() {
+            @Override
+            public int getSize() {
+                return accounts.size();
+            }
 
-        accountList = new JList<>(listModel);
+            @Override
+            public Account getElementAt(int index) {
+                return accounts.get(index);
+            }
+        });
+        // kích thước dòng cố định → JList không phải đọc mọi phần tử để tính kích thước
+        accountList.setFixedCellWidth(170);
+        accountList.setFixedCellHeight(20);
         accountList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
         accountList.setSelectedIndex(0);
+        // đổi account → hiện captcha đã tải sẵn của account đó
+        accountList.addListSelectionListener(e -> {
+            if (e.getValueIsAdjusting() || batchRunning) return;
+            captchas.seek(accountList.getSelectedIndex());
+            showCaptcha(accountList.getSelectedValue(), false, false);
+        });
+
+        // mỗi dòng account là một thanh progress riêng
+        JProgressBar rowBar = new JProgressBar(0, 100);
+        rowBar.setUI(new GradientProgressUI());
+        rowBar.setStringPainted(true);
+        rowBar.setBorder(BorderFactory.createEmptyBorder(2, 5, 2, 5));
+        rowBar.setPreferredSize(new Dimension(170, 20));
         accountList.setCellRenderer((list, value, index, isSelected, cellHasFocus) -> {
-            JLabel label = new JLabel(value.username);
-            label.setOpaque(true);
-            label.setBackground(isSelected ? new Color(200, 200, 255) : Color.WHITE);
-            label.setForeground(Color.BLACK);
-            label.setBorder(BorderFactory.createEmptyBorder(2, 5, 2, 5));
-            return label;
+            UiRenderer.Row row = renderer.row(value);
+            rowBar.setBackground(isSelected ? new Color(200, 200, 255) : Color.WHITE);
+            if (row == null) {
+                rowBar.setValue(0);
+                rowBar.setString(value.username());
+                rowBar.setForeground(COLOR_IDLE);
+            } else {
+                rowBar.setValue(row.current);
+                rowBar.setString(value.username() + " · " + row.target.text());
+                rowBar.setForeground(row.target.color());
+            }
+            return rowBar;
         });
 
         JScrollPane scroll = new JScrollPane(accountList);
-        scroll.setPreferredSize(new Dimension(180, 200));
+        scroll.setPreferredSize(new Dimension(180, 170));
         scroll.setBorder(BorderFactory.createEmptyBorder());
         scroll.getVerticalScrollBar().setUnitIncrement(16);
 
-        JButton runBtn = new JButton("LOGIN & RUN");
         runBtn.setMaximumSize(new Dimension(140, 28));
         runBtn.setAlignmentX(Component.CENTER_ALIGNMENT);
         runBtn.addActionListener(e -> runWithProgress());
 
+        runAllBtn.setMaximumSize(new Dimension(140, 28));
+        runAllBtn.setAlignmentX(Component.CENTER_ALIGNMENT);
+        runAllBtn.addActionListener(e -> runAll());
+
         JPanel leftPanel = new JPanel();
         leftPanel.setLayout(new BoxLayout(leftPanel, BoxLayout.Y_AXIS));
         leftPanel.add(scroll);
         leftPanel.add(Box.createVerticalStrut(10));
         leftPanel.add(runBtn);
+        leftPanel.add(Box.createVerticalStrut(5));
+        leftPanel.add(runAllBtn);
 
         // -------- RIGHT PANEL --------
         captchaLabel.setPreferredSize(new Dimension(140, 60));
@@ -111,11 +154,17 @@ public class LoginApp extends JFrame {
 
         captchaField.setMaximumSize(new Dimension(140, 26));
         captchaField.setAlignmentX(Component.CENTER_ALIGNMENT);
+        // RUN ALL: Enter = gửi captcha của account đang hiện, chuyển ngay sang captcha kế tiếp
+        captchaField.addActionListener(e -> submitCaptcha());
 
-        JButton refreshBtn = new JButton("Refresh Captcha");
         refreshBtn.setMaximumSize(new Dimension(140, 26));
         refreshBtn.setAlignmentX(Component.CENTER_ALIGNMENT);
-        refreshBtn.addActionListener(e -> fetchCaptcha(true));
+        refreshBtn.addActionListener(e -> showCaptcha(accountList.getSelectedValue(), true, true));
+
+        JButton metricsBtn = new JButton("Metrics");
+        metricsBtn.setMaximumSize(new Dimension(140, 26));
+        metricsBtn.setAlignmentX(Component.CENTER_ALIGNMENT);
+        metricsBtn.addActionListener(e -> showMetrics());
 
         JPanel rightPanel = new JPanel();
         rightPanel.setLayout(new BoxLayout(rightPanel, BoxLayout.Y_AXIS));
@@ -124,6 +173,8 @@ public class LoginApp extends JFrame {
         rightPanel.add(captchaField);
         rightPanel.add(Box.createVerticalStrut(5));
         rightPanel.add(refreshBtn);
+        rightPanel.add(Box.createVerticalStrut(5));
+        rightPanel.add(metricsBtn);
 
         // -------- MAIN --------
         JPanel mainPanel = new JPanel(new GridLayout(1, 2, 20, 0));
@@ -167,396 +218,326 @@ public class LoginApp extends JFrame {
         wrapper.add(logPanelWrapper, BorderLayout.SOUTH); // log
 
         setContentPane(wrapper);
+
+        renderer = new UiRenderer(logArea, statusLabel, progressBar, accountList);
     }
 
     // ================= PROGRESS ANIMATION =================
     private void animateProgress(int value, String text, Color color) {
-        targetValue = value;
-        progressBar.setString(text);
-        progressBar.setForeground(color);
+        renderer.progress(new UiRenderer.Progress(value, text, color));
+    }
 
-        if (progressTimer != null && progressTimer.isRunning()) progressTimer.stop();
+    private UiRenderer.Progress stepProgress(RunListener.Step step) {
+        return switch (step) {
+            case LOGIN -> new UiRenderer.Progress(25, "Login...", COLOR_LOGIN);
+            case SIGNIN -> new UiRenderer.Progress(60, "Signin...", COLOR_SIGNIN);
+            case FULL_PRIZE, TASK -> new UiRenderer.Progress(85, "Get reward...", COLOR_TASK);
+            case DONE -> new UiRenderer.Progress(100, "Hoàn thành", COLOR_SUCCESS);
+            case ALREADY_CLAIMED -> new UiRenderer.Progress(100, "Quà đã nhận, không thể nhận thêm", COLOR_TASK);
+            case ERROR -> new UiRenderer.Progress(100, "Error", COLOR_ERROR);
+        };
+    }
 
-        progressTimer = new Timer(10, e -> {
-            if (currentValue < targetValue) currentValue += 1;
-            else if (currentValue > targetValue) currentValue -= 1;
-            else ((Timer) e.getSource()).stop();
+    // ================= METRICS =================
 
-            progressBar.setValue(currentValue);
+    /**
+     * Cửa sổ xem số liệu theo endpoint, cập nhật mỗi giây khi đang mở
+     */
+    private void showMetrics() {
+        JTextArea area = new JTextArea(14, 90);
+        area.setEditable(false);
+        area.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+
+        JDialog dialog = new JDialog(this, "Metrics", false);
+        dialog.setContentPane(new JScrollPane(area));
+        dialog.pack();
+        dialog.setLocationRelativeTo(this);
+
+        Timer refresh = new Timer(1000, e -> area.setText(api.latencySummary()
+                + "🚦 Đang chờ rate limiter: " + api.rateLimiter().queueDepth()));
+        refresh.setInitialDelay(0);
+        refresh.start();
+        dialog.addWindowListener(new java.awt.event.WindowAdapter() {
+            @Override
+            public void windowClosed(java.awt.event.WindowEvent e) {
+                refresh.stop();
+            }
         });
-
-        progressTimer.start();
+        dialog.setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
+        dialog.setVisible(true);
     }
 
     // ================= FLOW =================
     private void runWithProgress() {
+        Account acc = accountList.getSelectedValue();
+        if (acc == null) {
+            renderer.status("⚠️ Chưa chọn account");
+            return;
+        }
+        String captcha = captchaField.getText();
+        CookieHandler jar = captchas.cookies(acc);
+        captchas.consume(acc);
+
         animateProgress(0, "Starting...", COLOR_IDLE);
         appendLog("===================== Starting =====================");
-        statusLabel.setText("🔄 Đang xử lý");
+        renderer.status("🔄 Đang xử lý");
         appendLog("🔄 Đang xử lý");
 
-        SwingWorker<Void, String> worker = new SwingWorker<>() {
+        SwingWorker<Boolean, Void> worker = new SwingWorker<>() {
 
             @Override
-            protected Void doInBackground() {
-                try {
-                    // --- LOGIN ---
-                    publish("Login...", "login");
-                    if (!doLogin()) {
-                        publish("Login fail", "error");
-                        return null;
-                    }
-
-                    // --- SIGNIN ---
-                    publish("Signin...", "signin");
-
-                    int dateNo = getSignInDay();
-                    int today = getTodayDateNo();
-                    int lastDay = getLastDayOfMonth();
-
-                    int type = (dateNo != today) ? SignType.BACK : SignType.TODAY;
-
-                    if (dateNo > 0) {
-                        boolean signinOk = doSignin(dateNo, type);
-
-                        if (signinOk) {
-                            // VỪA ĐỦ NGÀY → NHẬN FULL PRIZE
-                            if (dateNo == lastDay) {
-                                publish("Get full month prize...", "task");
-                                getFullPrize();
-
-                            }
-                            // ĐÃ VƯỢT NGÀY CUỐI THÁNG → COI NHƯ ĐÃ NHẬN
-                            else if (dateNo > lastDay) {
-                                appendLog("⚠️ Thưởng đủ ngày tháng này đã nhận rồi");
-                                statusLabel.setText("⚠️ Đã nhận thưởng đủ ngày tháng");
-                            }
-                            // CHƯA ĐỦ NGÀY
-                            else {
-                                appendLog("ℹ️ Chưa đủ ngày (" + (dateNo - 1) + "/" + lastDay + "), bỏ qua full prize");
-                            }
-                        }
-                    }
-
-                    // --- TASK NGÀY ---
-                    publish("Get daily task prize...", "task");
-                    doTask();
-
-                } catch (Exception e) {
-                    e.printStackTrace();
-                    publish("Error", "error");
-                }
-                return null;
+            protected Boolean doInBackground() {
+                boolean ok = new AccountWorker(acc, new MfoApi(api, uiListener), jar, uiListener, tokens, journal, calendar)
+                        .run((account, fetchImage) -> captcha, 1);
+                tokens.flush();
+                if (journal != null) journal.flush();
+                if (calendar != null) calendar.flush();
+                reportMetrics();
+                return ok;
             }
 
             @Override
-            protected void process(List<String> chunks) {
-                // Lấy chunk cuối cùng để update UI
-                String last = chunks.get(chunks.size() - 1);
-                switch (last) {
-                    case "login" -> animateProgress(25, "Login...", COLOR_LOGIN);
-                    case "signin" -> animateProgress(60, "Signin...", COLOR_SIGNIN);
-                    case "task" -> animateProgress(85, "Get reward...", COLOR_TASK);
-                    case "error" -> animateProgress(100, "Error", COLOR_ERROR);
+            protected void done() {
+                // Thành công → chuyển sang account kế tiếp (captcha đã tải sẵn), lỗi → tải lại captcha cho account này.
+                // Không thay đổi statusLabel
+                int next = accountList.getSelectedIndex() + 1;
+                boolean ok = false;
+                try {
+                    ok = get();
+                } catch (Exception e) {
+                    e.printStackTrace();
                 }
+                if (ok) captchas.release(acc);
+                if (ok && next < accountList.getModel().getSize()) accountList.setSelectedIndex(next);
+                else showCaptcha(acc, true, false);
             }
         };
 
         worker.execute();
     }
 
-    // ================= API =================
-    // ================= HTTP CLIENT CHUNG =================
-    private final HttpClient httpClient = HttpClient.newBuilder().cookieHandler(new java.net.CookieManager()).build();
+    /**
+     * Chạy toàn bộ account trong accounts.txt, mỗi account hỏi captcha riêng
+     */
+    private void runAll() {
+        List<Account> all = accounts;
+        if (all.isEmpty()) return;
 
-    // ================= CAPTCHA =================
-    private void fetchCaptcha(boolean showStatus) {
-        try {
-            HttpRequest req = HttpRequest.newBuilder().uri(URI.create(BASE_URL + "/webapi/login/getCaptcha")).GET().build();
+        BatchRunner runner = new BatchRunner(api, captchas, batchListener, tokens, journal, calendar,
+                BatchRunner.Options.fromSystemProperties(), captchas::cookies);
 
-            HttpResponse<byte[]> res = httpClient.send(req, HttpResponse.BodyHandlers.ofByteArray());
-            captchaLabel.setIcon(new ImageIcon(res.body()));
-            captchaField.setText("");
+        // tải trước captcha cho các account đầu tiên cần login
+        captchas.plan(all, this::needsCaptcha);
+        all.stream().filter(this::needsCaptcha).findFirst().ifPresent(captchas::captcha);
 
-            if (showStatus) {
-                statusLabel.setText("⌨️ Nhập captcha hiển thị bên phải");
-                appendLog("================== Load captcha ==================");
-                appendLog("⌨️ Nhập captcha hiển thị bên phải");
+        setBatchRunning(true);
+        renderer.clearAccountProgress();
+        animateProgress(0, "Starting...", COLOR_IDLE);
+        appendLog("================ Run all (" + all.size() + " account) ================");
+        renderer.status("🔄 Đang xử lý " + all.size() + " account");
+
+        SwingWorker<BatchRunner.Summary, Void> worker = new SwingWorker<>() {
+
+            @Override
+            protected BatchRunner.Summary doInBackground() throws Exception {
+                BatchRunner.Summary summary = runner.runAll(all, (account, ok, done, total) -> {
+                    captchas.release(account);
+                    animateProgress(done * 100 / total, done + "/" + total, COLOR_TASK);
+                });
+                reportMetrics();
+                return summary;
             }
-        } catch (Exception e) {
-            statusLabel.setText("❌ Lỗi fetch captcha");
-            appendLog("❌ Lỗi fetch captcha");
-            e.printStackTrace();
-        }
-    }
 
-    // ================= LOGIN =================
-    private boolean doLogin() {
-        Account acc = getSelectedAccount();
-        String captcha = captchaField.getText().strip();
+            @Override
+            protected void done() {
+                setBatchRunning(false);
+                try {
+                    BatchRunner.Summary summary = get();
+                    String text = "✅ Xong " + summary.success() + "/" + summary.total() + ", lỗi " + summary.failed()
+                            + " (" + summary.elapsedMs() / 1000 + "s)";
+                    animateProgress(100, "Hoàn thành", summary.failed() == 0 ? COLOR_SUCCESS : COLOR_ERROR);
+                    renderer.status(text);
+                    appendLog(text);
+                } catch (Exception e) {
+                    animateProgress(100, "Error", COLOR_ERROR);
+                    renderer.status("❌ Lỗi chạy batch");
+                    appendLog("❌ Lỗi chạy batch");
+                    e.printStackTrace();
+                }
+            }
+        };
 
-        if (captcha.isEmpty()) {
-            statusLabel.setText("⚠️️️️ Vui lòng nhập captcha");
-            appendLog("⚠️️️ Vui lòng nhập captcha");
-            return false;
+        worker.execute();
+    }
+
+    // ================= LISTENER =================
+    private final RunListener uiListener = new RunListener() {
+        @Override
+        public void log(Account account, String message) {
+            appendLog(message);
         }
 
-        String body = """
-                {
-                  "username":"%s",
-                  "password":"%s",
-                  "code":"%s",
-                  "type":1,
-                  "source":"web"
-                }
-                """.formatted(acc.username, acc.password, captcha);
-        appendLog("🔑 Đang đăng nhập user ➡️ " + acc.username);
+        @Override
+        public void status(Account account, String message) {
+            renderer.status(message);
+        }
 
-        try {
-            HttpRequest req = HttpRequest.newBuilder().uri(URI.create(BASE_URL + "/webapi/login/doLogin")).header("Content-Type", "application/json").POST(HttpRequest.BodyPublishers.ofString(body)).build();
-
-            HttpResponse<String> res = httpClient.send(req, HttpResponse.BodyHandlers.ofString());
-
-            if (res.body().contains("\"state\":100002")) {
-                statusLabel.setText("❌ Login fail, mã xác thực sai");
-                appendLog("❌ Login fail, mã xác thực sai");
-                fetchCaptcha(false);
-                return false;
-            } else if (res.body().contains("\"state\":500")) {
-                statusLabel.setText("❌ Login fail, Tên người dùng hoặc mật khẩu sai");
-                appendLog("❌ Login fail, Tên người dùng hoặc mật khẩu sai");
-                fetchCaptcha(false);
-                return false;
-            } else if (!res.body().contains("\"state\":200")) {
-                statusLabel.setText("❌ Login fail, Lỗi không xác định");
-                appendLog("❌ Login fail, Lỗi không xác định");
-                fetchCaptcha(false);
-                return false;
-            }
+        @Override
+        public void step(Account account, Step step) {
+            UiRenderer.Progress p = stepProgress(step);
+            renderer.progress(p);
+            renderer.accountProgress(account, p);
+        }
+    };
 
-            token = extract(res.body(), "token");
-            userId = extract(res.body(), "userId");
+    // batch: log kèm username, progress chung tính theo số account đã xong, mỗi account một dòng progress
+    private final RunListener batchListener = new RunListener() {
+        @Override
+        public void log(Account account, String message) {
+            appendLog("[" + account.username() + "] " + message);
+        }
 
-            return true;
-        } catch (Exception e) {
-            fetchCaptcha(false);
-            statusLabel.setText("❌ Lỗi login");
-            appendLog("❌ Lỗi login");
-            e.printStackTrace();
-            return false;
+        @Override
+        public void status(Account account, String message) {
         }
-    }
 
-    private int getSignInDay() {
-        try {
-            String body = """
-                    {
-                      "activityName": "signin",
-                      "userId": %s,
-                      "platForm": "web"
-                    }
-                    """.formatted(userId);
-
-            HttpResponse<String> res = post("/webapi/signIn/getSignInList", body, token);
-
-            // parse signDay
-            String dataSection = extractJsonObject(res.body(), "data");
-            if (dataSection.contains("signDay")) {
-                String dayStr = dataSection.substring(dataSection.indexOf("signDay") + 9).split("[,}]")[0].replaceAll("[\" ]", "");
-                return Integer.parseInt(dayStr) + 1;
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
+        @Override
+        public void step(Account account, Step step) {
+            renderer.accountProgress(account, stepProgress(step));
         }
-        return -1; // trả về -1 nếu lỗi
-    }
+    };
+
+    // ================= API =================
+    // ================= HTTP CLIENT CHUNG =================
+    private final ApiClient api = new ApiClient(ApiClient.Options.fromSystemProperties());
+    private final TokenStore tokens = TokenStore.fromSystemProperties();
+    private final RunJournal journal = RunJournal.fromSystemProperties();
+    private final SignInCalendar calendar = SignInCalendar.fromSystemProperties();
+    private final CaptchaQueue<ImageIcon> captchas = new CaptchaQueue<>(new MfoApi(api, uiListener), LoginApp::decodeCaptcha,
+            () -> SwingUtilities.invokeLater(this::showNextCaptcha));
+    private volatile boolean batchRunning;
+    private CaptchaQueue.Ready<ImageIcon> currentCaptcha; // RUN ALL: captcha đang chờ nhập (chỉ dùng trên EDT)
+
+    // ================= CAPTCHA =================
 
     /**
-     * Hàm điểm danh
+     * Hiện captcha của account (lấy từ hàng đợi tải trước, tải + decode ngoài EDT)
      *
-     * @param dateNo ngày điểm danh
-     * @param type   1 = điểm danh bình thường, 2 = điểm danh bù
-     * @return
-     * @throws Exception
+     * @param refresh true = bỏ captcha hiện tại, tải cái mới
      */
-    private boolean doSignin(int dateNo, int type) throws Exception {
-        String body = """
-                {
-                  "dateNo": %d,
-                  "userId": %s,
-                  "platForm":"web",
-                  "signInType": %d
-                }
-                """.formatted(dateNo > getLastDayOfMonth() ? dateNo - 1 : dateNo, userId, type);
-
-        HttpResponse<String> res = post("/webapi/signIn/doSignin", body, token);
-
-        if (res.body().contains("\"state\":200")) {
-            statusLabel.setText("✅ Điểm danh thành công");
-            appendLog("✅ Điểm danh thành công");
-            return true;
-        } else if (res.body().contains("\"state\":100024")) {
-            statusLabel.setText("⚠️ Ngày " + (dateNo - 1) + " đã điểm danh bù, tiếp tục...");
-            appendLog("⚠️ Ngày " + (dateNo - 1) + " đã điểm danh bù, tiếp tục...");
-            return true; // vẫn trả về true để tiếp tục doTask()
-        } else if (res.body().contains("\"state\":10002") || res.body().contains("\"state\":100007")) {
-            statusLabel.setText("⚠️ Ngày " + (dateNo - 1) + " đã điểm danh, tiếp tục...");
-            appendLog("⚠️ Ngày " + (dateNo - 1) + " đã điểm danh, tiếp tục...");
-            return true; // vẫn trả về true để tiếp tục doTask()
-        } else {
-            statusLabel.setText("❌ Lỗi điểm danh");
-            appendLog("❌ Lỗi điểm danh");
-            return false;
-        }
-    }
-
-    private void doTask() {
-        try {
-            String body = """
-                    {
-                      "taskId":1,
-                      "platForm":"web",
-                      "userId":%s
-                    }
-                    """.formatted(userId);
-
-            HttpResponse<String> res = post("/webapi/task/getTaskPrize", body, token);
-
-            SwingUtilities.invokeLater(() -> {
-                if (res.body().contains("\"state\":200")) {
-                    animateProgress(100, "Hoàn thành", COLOR_SUCCESS);
-                    statusLabel.setText("✅ Hoàn thành");
-                    appendLog("💎 Nhận kim cương thành công");
-                    appendLog("✅ Hoàn thành");
-                } else {
-                    animateProgress(100, "Quà đã nhận, không thể nhận thêm", COLOR_TASK);
-                    statusLabel.setText("⚠️ Quà đã nhận, không thể nhận thêm");
-                    appendLog("⚠️ Quà đã nhận, không thể nhận thêm");
-                }
+    private void showCaptcha(Account account, boolean refresh, boolean showStatus) {
+        if (account == null) return;
+        CompletableFuture<ImageIcon> captcha = refresh ? captchas.refresh(account) : captchas.captcha(account);
+        captcha.whenComplete((icon, e) -> SwingUtilities.invokeLater(() -> {
+            // đã chuyển sang account khác / đang RUN ALL → bỏ qua
+            if (batchRunning || !account.equals(accountList.getSelectedValue())) return;
+            if (e != null) {
+                renderer.status("❌ Lỗi fetch captcha");
+                appendLog("❌ Lỗi fetch captcha");
+                e.printStackTrace();
+                return;
+            }
+            captchaLabel.setIcon(icon);
+            captchaField.setText("");
 
-                // Tự động reload captcha nhưng không thay đổi statusLabel
-                fetchCaptcha(false);
-            });
-        } catch (Exception e) {
-            SwingUtilities.invokeLater(() -> {
-                animateProgress(100, "Lỗi", COLOR_ERROR);
-                statusLabel.setText("❌ Lỗi nhận quà");
-                appendLog("❌ Lỗi nhận quà");
-                fetchCaptcha(false);
-            });
-            e.printStackTrace();
-        }
+            if (showStatus) {
+                renderer.status("⌨️ Nhập captcha hiển thị bên phải");
+                appendLog("================== Load captcha ==================");
+                appendLog("⌨️ Nhập captcha hiển thị bên phải");
+            }
+        }));
     }
 
     /**
-     * Nhận thưởng đủ ngày trong tháng
+     * RUN ALL: hiện captcha kế tiếp trong hàng đợi (ảnh đã decode sẵn)
      */
-    private boolean getFullPrize() {
-        try {
-            // yyyyMM
-            Calendar cal = Calendar.getInstance();
-            String month = String.format("%04d%02d", cal.get(Calendar.YEAR), cal.get(Calendar.MONTH) + 1);
-
-            String body = """
-                    {
-                      "month":"%s",
-                      "platForm":"web",
-                      "userId":%s
-                    }
-                    """.formatted(month, userId);
-
-            HttpResponse<String> res = post("/webapi/signIn/getfullPrize", body, token);
-
-            if (res.body().contains("\"state\":200")) {
-                appendLog("🎁 Nhận thưởng đủ ngày thành công (" + month + ")");
-                statusLabel.setText("🎁 Đã nhận thưởng đủ ngày");
-                return true;
-            } else {
-                appendLog("⚠️ Không thể nhận thưởng đủ ngày");
-                return false;
-            }
-        } catch (Exception e) {
-            appendLog("❌ Lỗi getfullPrize");
-            e.printStackTrace();
-            return false;
+    private void showNextCaptcha() {
+        if (!batchRunning || (currentCaptcha != null && !currentCaptcha.done())) return;
+        currentCaptcha = captchas.poll();
+        if (currentCaptcha == null) {
+            captchaLabel.setIcon(null);
+            return;
         }
-    }
 
-    private HttpResponse<String> post(String path, String body, String token) throws Exception {
-        HttpRequest.Builder builder = HttpRequest.newBuilder().uri(URI.create(BASE_URL + path)).header("Content-Type", "application/json").POST(HttpRequest.BodyPublishers.ofString(body));
+        captchaLabel.setIcon(currentCaptcha.image());
+        captchaField.setText("");
+        captchaField.requestFocusInWindow();
+        int index = currentCaptcha.index();
+        if (index >= 0) {
+            accountList.setSelectedIndex(index);
+            accountList.ensureIndexIsVisible(index);
+        }
 
-        if (token != null) builder.header("token", token);
+        int waiting = captchas.pending();
+        renderer.status("⌨️ Captcha cho " + currentCaptcha.account().username()
+                + (waiting > 0 ? " (còn " + waiting + " đang chờ)" : ""));
+    }
 
-        return HttpClient.newHttpClient().send(builder.build(), HttpResponse.BodyHandlers.ofString());
+    private void submitCaptcha() {
+        if (currentCaptcha == null) return;
+        currentCaptcha.submit(captchaField.getText());
+        currentCaptcha = null;
+        captchaLabel.setIcon(null);
+        captchaField.setText("");
+        showNextCaptcha();
     }
 
-    private Account getSelectedAccount() {
-        Account selected = accountList.getSelectedValue();
-        if (selected == null) throw new RuntimeException("Chưa chọn account");
-        return selected;
+    private void setBatchRunning(boolean running) {
+        batchRunning = running;
+        runAllBtn.setEnabled(!running);
+        runBtn.setEnabled(!running);
+        refreshBtn.setEnabled(!running);
+        if (!running) {
+            // captcha còn treo (vd account lỗi giữa chừng) → bỏ qua, quay lại chế độ một account
+            if (currentCaptcha != null) currentCaptcha.skip();
+            currentCaptcha = null;
+            captchas.skipAll();
+            captchas.plan(accounts, this::needsCaptcha);
+            showCaptcha(accountList.getSelectedValue(), false, false);
+        }
     }
 
-    private String extract(String json, String key) {
-        int i = json.indexOf(key);
-        if (i < 0) return "";
-        return json.substring(json.indexOf(":", i) + 1).split("[,}]")[0].replaceAll("[\" ]", "");
+    private boolean needsCaptcha(Account account) {
+        if (tokens.has(account.username())) return false;
+        return journal == null || (!journal.finished(account) && journal.session(account, null) == null);
     }
 
-    private String extractJsonObject(String json, String key) {
-        int i = json.indexOf("\"" + key + "\"");
-        if (i < 0) return "";
-        int start = json.indexOf("{", i);
-        if (start < 0) return "";
-        int end = start;
-        int count = 1; // đếm số ngoặc
-        while (count > 0 && ++end < json.length()) {
-            char c = json.charAt(end);
-            if (c == '{') count++;
-            else if (c == '}') count--;
+    /**
+     * Decode ảnh captcha (chạy trên thread decode của {@link CaptchaQueue}, không phải EDT)
+     */
+    private static ImageIcon decodeCaptcha(byte[] bytes) {
+        try {
+            BufferedImage image = ImageIO.read(new ByteArrayInputStream(bytes));
+            if (image == null) throw new IOException("Ảnh captcha không đọc được (" + bytes.length + " byte)");
+            return new ImageIcon(image);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
-        return json.substring(start, end + 1);
     }
 
     private void loadAccountsFromFile(String filename) {
-        accounts.clear();
-        try (var br = new java.io.BufferedReader(new java.io.FileReader(filename))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                line = line.strip();
-                if (line.isEmpty()) continue;
-
-                // tách theo dấu |
-                String[] parts = line.split("\\|", 2);
-                if (parts.length == 2) {
-                    accounts.add(new Account(parts[0].strip(), parts[1].strip()));
-                }
-            }
+        try {
+            accounts = AccountFile.open(filename, (lineNo, reason) -> {
+                // chỉ hiện vài dòng đầu, phần còn lại gộp thành một dòng
+                if (loadWarnings.size() < MAX_LOAD_WARNINGS) loadWarnings.add("⚠️ " + filename + " dòng " + lineNo + ": " + reason);
+                else if (loadWarnings.size() == MAX_LOAD_WARNINGS) loadWarnings.add("⚠️ ... còn dòng sai định dạng khác, xem stderr");
+                System.err.println("⚠️ " + filename + " dòng " + lineNo + ": " + reason);
+            });
         } catch (Exception e) {
             JOptionPane.showMessageDialog(this, "Không thể load account từ file: " + e.getMessage());
         }
     }
 
-    /**
-     * Hàm lấy số ngày hôm nay (1-31)
-     */
-    private int getTodayDateNo() {
-        Calendar cal = Calendar.getInstance();
-        return cal.get(Calendar.DAY_OF_MONTH);
+    private void appendLog(String message) {
+        renderer.log(message);
     }
 
     /**
-     * Lấy ngày cuối cùng của tháng hiện tại
+     * Sau mỗi lần chạy: tóm tắt latency vào log, file metrics chỉ ghi khi đã đặt -Dmfo.metrics.file
      */
-    private int getLastDayOfMonth() {
-        Calendar cal = Calendar.getInstance();
-        return cal.getActualMaximum(Calendar.DAY_OF_MONTH);
-    }
-
-    private void appendLog(String message) {
-        SwingUtilities.invokeLater(() -> {
-            logArea.append(message + "\n");
-            logArea.setCaretPosition(logArea.getDocument().getLength());
-        });
+    private void reportMetrics() {
+        api.latencySummary().lines().forEach(this::appendLog);
+        api.metrics().export(null);
     }
 
     // ================= CUSTOM UI =================
@@ -0,0 +1,210 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Số liệu theo endpoint và theo account: histogram latency (p50 / p95 / p99), số lần theo mã state,
+ * số lỗi và số lần thử lại. Ghi lock-free, đọc bất kỳ lúc nào (UI xem trực tiếp),
+ * xuất JSON khi kết thúc lần chạy.
+ */
+public class Metrics {
+
+    /**
+     * Histogram log-linear theo micro giây: mỗi lũy thừa của 2 chia 16 bucket (sai số ~6%)
+     */
+    static class Histogram {
+        private static final int SUB_BITS = 4;
+        private static final int SUB = 1 << SUB_BITS;
+        private static final int SIZE = SUB + (64 - SUB_BITS) * SUB;
+
+        private final AtomicLongArray counts = new AtomicLongArray(SIZE);
+        private final LongAdder total = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+
+        void record(long nanos) {
+            long micros = Math.max(0, nanos / 1_000);
+            counts.incrementAndGet(index(micros));
+            total.increment();
+            max.accumulateAndGet(micros, Math::max);
+        }
+
+        long count() {
+            return total.sum();
+        }
+
+        long maxMicros() {
+            return max.get();
+        }
+
+        /**
+         * @param p phân vị trong khoảng (0, 1]
+         */
+        long percentileMicros(double p) {
+            long n = count();
+            if (n == 0) return 0;
+            long rank = (long) Math.ceil(p * n);
+            long seen = 0;
+            for (int i = 0; i < SIZE; i++) {
+                seen += counts.get(i);
+                if (seen >= rank) return Math.min(upperBound(i), max.get());
+            }
+            return max.get();
+        }
+
+        private static int index(long v) {
+            if (v < SUB) return (int) v;
+            int exp = 63 - Long.numberOfLeadingZeros(v);
+            int sub = (int) ((v >>> (exp - SUB_BITS)) & (SUB - 1));
+            return SUB + (exp - SUB_BITS) * SUB + sub;
+        }
+
+        private static long upperBound(int index) {
+            if (index < SUB) return index;
+            int exp = (index - SUB) / SUB + SUB_BITS;
+            int sub = (index - SUB) % SUB;
+            return ((long) (SUB + sub + 1) << (exp - SUB_BITS)) - 1;
+        }
+    }
+
+    static class EndpointMetrics {
+        final Histogram latency = new Histogram();
+        final LongAdder errors = new LongAdder();
+        final LongAdder retries = new LongAdder();
+        final Map<Integer, LongAdder> states = new ConcurrentHashMap<>();
+    }
+
+    static class AccountMetrics {
+        final LongAdder calls = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final LongAdder retries = new LongAdder();
+        final LongAdder totalNanos = new LongAdder();
+    }
+
+    private final Map<String, EndpointMetrics> endpoints = new ConcurrentHashMap<>();
+    private final Map<String, AccountMetrics> accounts = new ConcurrentHashMap<>();
+    private final long startedAt = System.currentTimeMillis();
+
+    // ================= GHI =================
+    void recordCall(String path, Account account, long nanos, boolean ok) {
+        EndpointMetrics e = endpoint(path);
+        e.latency.record(nanos);
+        if (!ok) e.errors.increment();
+
+        AccountMetrics a = account(account);
+        if (a != null) {
+            a.calls.increment();
+            a.totalNanos.add(nanos);
+            if (!ok) a.errors.increment();
+        }
+    }
+
+    void recordRetry(String path, Account account) {
+        endpoint(path).retries.increment();
+        AccountMetrics a = account(account);
+        if (a != null) a.retries.increment();
+    }
+
+    void recordState(String path, int state) {
+        endpoint(path).states.computeIfAbsent(state, s -> new LongAdder()).increment();
+    }
+
+    private EndpointMetrics endpoint(String path) {
+        return endpoints.computeIfAbsent(name(path), p -> new EndpointMetrics());
+    }
+
+    private AccountMetrics account(Account account) {
+        return account == null ? null : accounts.computeIfAbsent(account.username(), u -> new AccountMetrics());
+    }
+
+    private static String name(String path) {
+        return path.substring(path.lastIndexOf('/') + 1);
+    }
+
+    // ================= ĐỌC =================
+
+    /**
+     * Bảng tóm tắt theo endpoint (dùng cho log / UI)
+     */
+    String summary() {
+        StringBuilder sb = new StringBuilder();
+        new TreeMap<>(endpoints).forEach((name, e) -> {
+            Histogram h = e.latency;
+            sb.append(String.format("⏱ %-14s n=%-5d p50=%.0fms p95=%.0fms p99=%.0fms max=%.0fms err=%d retry=%d state=%s%n",
+                    name, h.count(), h.percentileMicros(0.50) / 1e3, h.percentileMicros(0.95) / 1e3,
+                    h.percentileMicros(0.99) / 1e3, h.maxMicros() / 1e3, e.errors.sum(), e.retries.sum(),
+                    new TreeMap<>(e.states)));
+        });
+        return sb.toString();
+    }
+
+    String toJson() {
+        StringBuilder sb = new StringBuilder(1024);
+        sb.append("{\n  \"startedAt\": ").append(startedAt)
+                .append(",\n  \"finishedAt\": ").append(System.currentTimeMillis())
+                .append(",\n  \"endpoints\": {");
+
+        boolean first = true;
+        for (Map.Entry<String, EndpointMetrics> entry : new TreeMap<>(endpoints).entrySet()) {
+            EndpointMetrics e = entry.getValue();
+            Histogram h = e.latency;
+            sb.append(first ? "\n" : ",\n").append("    ").append(ConsoleListener.quote(entry.getKey())).append(": {")
+                    .append("\"count\": ").append(h.count())
+                    .append(", \"errors\": ").append(e.errors.sum())
+                    .append(", \"retries\": ").append(e.retries.sum())
+                    .append(", \"p50Ms\": ").append(h.percentileMicros(0.50) / 1e3)
+                    .append(", \"p95Ms\": ").append(h.percentileMicros(0.95) / 1e3)
+                    .append(", \"p99Ms\": ").append(h.percentileMicros(0.99) / 1e3)
+                    .append(", \"maxMs\": ").append(h.maxMicros() / 1e3)
+                    .append(", \"states\": {");
+            boolean firstState = true;
+            for (Map.Entry<Integer, LongAdder> s : new TreeMap<>(e.states).entrySet()) {
+                sb.append(firstState ? "" : ", ").append('"').append(s.getKey()).append("\": ").append(s.getValue().sum());
+                firstState = false;
+            }
+            sb.append("}}");
+            first = false;
+        }
+
+        sb.append("\n  },\n  \"accounts\": {");
+        first = true;
+        for (Map.Entry<String, AccountMetrics> entry : new TreeMap<>(accounts).entrySet()) {
+            AccountMetrics a = entry.getValue();
+            sb.append(first ? "\n" : ",\n").append("    ").append(ConsoleListener.quote(entry.getKey())).append(": {")
+                    .append("\"calls\": ").append(a.calls.sum())
+                    .append(", \"errors\": ").append(a.errors.sum())
+                    .append(", \"retries\": ").append(a.retries.sum())
+                    .append(", \"totalMs\": ").append(a.totalNanos.sum() / 1_000_000)
+                    .append('}');
+            first = false;
+        }
+        sb.append("\n  }\n}\n");
+        return sb.toString();
+    }
+
+    /**
+     * Xuất JSON ra file (-Dmfo.metrics.file, mặc định metrics.json; "-" = không xuất)
+     */
+    void export() {
+        export("metrics.json");
+    }
+
+    /**
+     * @param defaultFile file khi chưa đặt mfo.metrics.file, null = chỉ xuất khi đã đặt (giao diện)
+     */
+    void export(String defaultFile) {
+        String file = Config.get("mfo.metrics.file", defaultFile);
+        if (file == null || file.equals("-")) return;
+        try {
+            Files.writeString(Path.of(file), toJson(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            System.err.println("⚠️ Không ghi được file metrics " + file + ": " + e.getMessage());
+        }
+    }
+}
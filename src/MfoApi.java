@@ -0,0 +1,347 @@
+import java.net.CookieHandler;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Clock;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.BiFunction;
+
+/**
+ * Các API của mfapi. Không giữ trạng thái account: token / userId / cookie nằm trong {@link Session},
+ * nên một instance dùng chung được cho nhiều account trên nhiều thread.
+ * <p>
+ * Mỗi API có bản chặn và bản bất đồng bộ (hậu tố Async), dùng chung phần xử lý kết quả nên log / state giống hệt nhau.
+ */
+public class MfoApi {
+
+    enum LoginState {
+        OK, WRONG_CAPTCHA, FAILED
+    }
+
+    record LoginResult(LoginState state, Session session) {
+    }
+
+    record SignInListResult(int state, int signDay) {
+        /**
+         * @return ngày cần điểm danh tiếp theo (signDay + 1), -1 nếu lỗi
+         */
+        int nextDateNo() {
+            return signDay >= 0 ? signDay + 1 : -1;
+        }
+
+        /**
+         * @return server trả lời rõ ràng là không nhận token (có state và khác OK); lỗi mạng / 5xx / breaker mở /
+         * thiếu signDay thì state là {@link ApiState#NONE} → không phải token hỏng
+         */
+        boolean rejected() {
+            return state != ApiState.NONE && state != ApiState.OK;
+        }
+    }
+
+    record SigninResult(int state) {
+        /**
+         * Điểm danh thành công hoặc ngày đó đã điểm danh rồi → vẫn tiếp tục doTask()
+         */
+        boolean accepted() {
+            return state == ApiState.OK || state == ApiState.ALREADY_BACK_SIGNED
+                    || state == ApiState.ALREADY_SIGNED || state == ApiState.ALREADY_SIGNED_2;
+        }
+    }
+
+    record PrizeResult(int state) {
+        boolean ok() {
+            return state == ApiState.OK;
+        }
+
+        /**
+         * Vừa nhận xong hoặc server báo đã nhận từ trước → hôm nay không cần nhận lại
+         */
+        boolean claimed() {
+            return ok() || state == ApiState.PRIZE_CLAIMED;
+        }
+    }
+
+    private static final String PATH_CAPTCHA = "/webapi/login/getCaptcha";
+    private static final String PATH_LOGIN = "/webapi/login/doLogin";
+    private static final String PATH_SIGN_IN_LIST = "/webapi/signIn/getSignInList";
+    private static final String PATH_SIGNIN = "/webapi/signIn/doSignin";
+    private static final String PATH_FULL_PRIZE = "/webapi/signIn/getfullPrize";
+    private static final String PATH_TASK = "/webapi/task/getTaskPrize";
+
+    private final ApiClient api;
+    private final RunListener listener;
+
+    public MfoApi(ApiClient api, RunListener listener) {
+        this.api = api;
+        this.listener = listener;
+    }
+
+    // ================= CAPTCHA =================
+    byte[] getCaptcha(Account account, CookieHandler cookies) throws Exception {
+        HttpResponse<byte[]> res = api.get(PATH_CAPTCHA, account, cookies);
+        return res.body();
+    }
+
+    CompletableFuture<byte[]> getCaptchaAsync(Account account, CookieHandler cookies) {
+        CompletableFuture<HttpResponse<byte[]>> call = api.getAsync(PATH_CAPTCHA, account, cookies);
+        return ApiClient.cancelling(call.thenApply(HttpResponse::body), call);
+    }
+
+    // ================= LOGIN =================
+    LoginResult doLogin(Account account, CookieHandler cookies, String captcha) {
+        HttpRequest.BodyPublisher body = RequestEncoder.login(account, captcha).publisher();
+        listener.log(account, "🔑 Đang đăng nhập user ➡️ " + account.username());
+
+        try {
+            ResponseParser res = api.post(PATH_LOGIN, body, account, null, cookies).body();
+            return loginResult(account, cookies, res);
+        } catch (Exception e) {
+            return loginFailed(account, e);
+        }
+    }
+
+    CompletableFuture<LoginResult> doLoginAsync(Account account, CookieHandler cookies, String captcha) {
+        HttpRequest.BodyPublisher body = RequestEncoder.login(account, captcha).detached();
+        listener.log(account, "🔑 Đang đăng nhập user ➡️ " + account.username());
+
+        CompletableFuture<HttpResponse<ResponseParser>> call = api.postAsync(PATH_LOGIN, body, account, null, cookies);
+        return ApiClient.cancelling(call.handle((res, e) ->
+                e == null ? loginResult(account, cookies, res.body()) : loginFailed(account, e)), call);
+    }
+
+    private LoginResult loginResult(Account account, CookieHandler cookies, ResponseParser res) {
+        if (res.state() == ApiState.WRONG_CAPTCHA) {
+            listener.status(account, "❌ Login fail, mã xác thực sai");
+            listener.log(account, "❌ Login fail, mã xác thực sai");
+            return new LoginResult(LoginState.WRONG_CAPTCHA, null);
+        } else if (res.state() == ApiState.FAILED) {
+            listener.status(account, "❌ Login fail, Tên người dùng hoặc mật khẩu sai");
+            listener.log(account, "❌ Login fail, Tên người dùng hoặc mật khẩu sai");
+            return new LoginResult(LoginState.FAILED, null);
+        } else if (res.state() != ApiState.OK) {
+            listener.status(account, "❌ Login fail, Lỗi không xác định");
+            listener.log(account, "❌ Login fail, Lỗi không xác định");
+            return new LoginResult(LoginState.FAILED, null);
+        }
+
+        Session session = new Session(account, res.token(), res.userId(), cookies);
+        return new LoginResult(LoginState.OK, session);
+    }
+
+    private LoginResult loginFailed(Account account, Throwable e) {
+        listener.status(account, "❌ Lỗi login");
+        listener.log(account, "❌ Lỗi login");
+        unwrap(e).printStackTrace();
+        return new LoginResult(LoginState.FAILED, null);
+    }
+
+    // ================= SIGN IN =================
+    SignInListResult getSignInList(Session session) {
+        try {
+            HttpRequest.BodyPublisher body = RequestEncoder.signInList(session).publisher();
+
+            ResponseParser res = post(PATH_SIGN_IN_LIST, body, session);
+            return new SignInListResult(res.state(), res.signDay());
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return new SignInListResult(ApiState.NONE, -1);
+    }
+
+    CompletableFuture<SignInListResult> getSignInListAsync(Session session) {
+        return postAsync(PATH_SIGN_IN_LIST, RequestEncoder.signInList(session), session, (res, e) -> {
+            if (e == null) return new SignInListResult(res.state(), res.signDay());
+            unwrap(e).printStackTrace();
+            return new SignInListResult(ApiState.NONE, -1);
+        });
+    }
+
+    /**
+     * Hàm điểm danh
+     *
+     * @param dateNo ngày điểm danh
+     * @param type   1 = điểm danh bình thường, 2 = điểm danh bù
+     * @return kết quả điểm danh, {@link SigninResult#accepted()} = được tiếp tục
+     * @throws Exception
+     */
+    SigninResult doSignin(Session session, int dateNo, int type) throws Exception {
+        HttpRequest.BodyPublisher body = RequestEncoder.signin(session, signDate(dateNo), type).publisher();
+        return signinResult(session.account(), dateNo, post(PATH_SIGNIN, body, session).state());
+    }
+
+    /**
+     * Bản bất đồng bộ của {@link #doSignin}: lỗi kết nối làm future thất bại (như bản chặn ném exception)
+     */
+    CompletableFuture<SigninResult> doSigninAsync(Session session, int dateNo, int type) {
+        return postAsync(PATH_SIGNIN, RequestEncoder.signin(session, signDate(dateNo), type), session, (res, e) -> {
+            if (e != null) throw e instanceof CompletionException ce ? ce : new CompletionException(e);
+            return signinResult(session.account(), dateNo, res.state());
+        });
+    }
+
+    private static int signDate(int dateNo) {
+        return dateNo > getLastDayOfMonth() ? dateNo - 1 : dateNo;
+    }
+
+    private SigninResult signinResult(Account account, int dateNo, int state) {
+        if (state == ApiState.OK) {
+            listener.status(account, "✅ Điểm danh thành công");
+            listener.log(account, "✅ Điểm danh thành công");
+        } else if (state == ApiState.ALREADY_BACK_SIGNED) {
+            listener.status(account, "⚠️ Ngày " + (dateNo - 1) + " đã điểm danh bù, tiếp tục...");
+            listener.log(account, "⚠️ Ngày " + (dateNo - 1) + " đã điểm danh bù, tiếp tục...");
+        } else if (state == ApiState.ALREADY_SIGNED || state == ApiState.ALREADY_SIGNED_2) {
+            listener.status(account, "⚠️ Ngày " + (dateNo - 1) + " đã điểm danh, tiếp tục...");
+            listener.log(account, "⚠️ Ngày " + (dateNo - 1) + " đã điểm danh, tiếp tục...");
+        } else {
+            listener.status(account, "❌ Lỗi điểm danh");
+            listener.log(account, "❌ Lỗi điểm danh");
+        }
+        return new SigninResult(state);
+    }
+
+    // ================= TASK =================
+    /**
+     * @return kết quả nhận quà, state = {@link ApiState#NONE} nếu lỗi kết nối
+     */
+    PrizeResult doTask(Session session) {
+        try {
+            HttpRequest.BodyPublisher body = RequestEncoder.task(session).publisher();
+            return taskResult(session.account(), post(PATH_TASK, body, session).state());
+        } catch (Exception e) {
+            return taskFailed(session.account(), e);
+        }
+    }
+
+    CompletableFuture<PrizeResult> doTaskAsync(Session session) {
+        return postAsync(PATH_TASK, RequestEncoder.task(session), session, (res, e) ->
+                e == null ? taskResult(session.account(), res.state()) : taskFailed(session.account(), e));
+    }
+
+    private PrizeResult taskResult(Account account, int state) {
+        PrizeResult result = new PrizeResult(state);
+        if (result.ok()) {
+            listener.step(account, RunListener.Step.DONE);
+            listener.status(account, "✅ Hoàn thành");
+            listener.log(account, "💎 Nhận kim cương thành công");
+            listener.log(account, "✅ Hoàn thành");
+        } else {
+            listener.step(account, RunListener.Step.ALREADY_CLAIMED);
+            listener.status(account, "⚠️ Quà đã nhận, không thể nhận thêm");
+            listener.log(account, "⚠️ Quà đã nhận, không thể nhận thêm");
+        }
+        return result;
+    }
+
+    private PrizeResult taskFailed(Account account, Throwable e) {
+        listener.step(account, RunListener.Step.ERROR);
+        listener.status(account, "❌ Lỗi nhận quà");
+        listener.log(account, "❌ Lỗi nhận quà");
+        unwrap(e).printStackTrace();
+        return new PrizeResult(ApiState.NONE);
+    }
+
+    // ================= FULL PRIZE =================
+    /**
+     * Nhận thưởng đủ ngày trong tháng
+     */
+    PrizeResult getFullPrize(Session session) {
+        int month = currentYearMonth();
+        try {
+            HttpRequest.BodyPublisher body = RequestEncoder.fullPrize(session, month).publisher();
+            return fullPrizeResult(session.account(), month, post(PATH_FULL_PRIZE, body, session).state());
+        } catch (Exception e) {
+            return fullPrizeFailed(session.account(), e);
+        }
+    }
+
+    CompletableFuture<PrizeResult> getFullPrizeAsync(Session session) {
+        int month = currentYearMonth();
+        return postAsync(PATH_FULL_PRIZE, RequestEncoder.fullPrize(session, month), session, (res, e) ->
+                e == null ? fullPrizeResult(session.account(), month, res.state()) : fullPrizeFailed(session.account(), e));
+    }
+
+    private PrizeResult fullPrizeResult(Account account, int month, int state) {
+        PrizeResult result = new PrizeResult(state);
+        if (result.ok()) {
+            listener.log(account, "🎁 Nhận thưởng đủ ngày thành công (" + month + ")");
+            listener.status(account, "🎁 Đã nhận thưởng đủ ngày");
+        } else {
+            listener.log(account, "⚠️ Không thể nhận thưởng đủ ngày");
+        }
+        return result;
+    }
+
+    private PrizeResult fullPrizeFailed(Account account, Throwable e) {
+        listener.log(account, "❌ Lỗi getfullPrize");
+        unwrap(e).printStackTrace();
+        return new PrizeResult(ApiState.NONE);
+    }
+
+
+    // ================= GỬI =================
+    private ResponseParser post(String path, HttpRequest.BodyPublisher body, Session session) throws Exception {
+        return api.post(path, body, session.account(), session.token(), session.cookies()).body();
+    }
+
+    /**
+     * Gửi bất đồng bộ (body được copy khỏi buffer của thread), {@code handler} nhận kết quả đã parse hoặc lỗi
+     */
+    private <R> CompletableFuture<R> postAsync(String path, RequestEncoder body, Session session,
+                                               BiFunction<ResponseParser, Throwable, R> handler) {
+        CompletableFuture<HttpResponse<ResponseParser>> call =
+                api.postAsync(path, body.detached(), session.account(), session.token(), session.cookies());
+        return ApiClient.cancelling(call.handle((res, e) -> handler.apply(e == null ? res.body() : null, e)), call);
+    }
+
+    private static Throwable unwrap(Throwable e) {
+        return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+    }
+
+    // ================= NGÀY THÁNG =================
+
+    /**
+     * Múi giờ tính ngày điểm danh: -Dmfo.timezone (vd Asia/Shanghai nếu server đổi ngày theo giờ Bắc Kinh),
+     * mặc định múi giờ máy. Đọc một lần, mọi phép tính ngày dùng chung clock này.
+     */
+    static final Clock CLOCK = Clock.system(zone(Config.get("mfo.timezone", null)));
+
+    private static ZoneId zone(String id) {
+        if (id == null) return ZoneId.systemDefault();
+        try {
+            return ZoneId.of(id);
+        } catch (DateTimeException e) {
+            System.err.println("⚠️ Cấu hình sai mfo.timezone=" + id + ", dùng múi giờ máy " + ZoneId.systemDefault());
+            return ZoneId.systemDefault();
+        }
+    }
+
+    static LocalDate today() {
+        return LocalDate.now(CLOCK);
+    }
+
+    /**
+     * Hàm lấy số ngày hôm nay (1-31)
+     */
+    static int getTodayDateNo() {
+        return today().getDayOfMonth();
+    }
+
+    /**
+     * Lấy ngày cuối cùng của tháng hiện tại
+     */
+    static int getLastDayOfMonth() {
+        return today().lengthOfMonth();
+    }
+
+    /**
+     * yyyyMM
+     */
+    static int currentYearMonth() {
+        LocalDate today = today();
+        return today.getYear() * 100 + today.getMonthValue();
+    }
+}
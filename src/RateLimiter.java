@@ -0,0 +1,152 @@
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Giới hạn tốc độ gọi API phía client (token bucket), dùng chung cho mọi thread.
+ * Có một bucket chung cho toàn bộ BASE_URL và bucket riêng theo endpoint.
+ * Request được giãn đều theo thời gian (burst nhỏ) thay vì dồn cục.
+ * <p>
+ * Cấu hình (request / giây, 0 = không giới hạn): -Dmfo.rate.global, -Dmfo.rate.&lt;tên endpoint&gt;
+ * (vd mfo.rate.doLogin, mfo.rate.getTaskPrize), -Dmfo.rate.burst.
+ */
+public class RateLimiter {
+
+    static class Bucket {
+        private final String name;
+        private final long intervalNanos;
+        private final long burstNanos;
+        private long next;
+
+        final AtomicInteger waiting = new AtomicInteger();
+        final LongAdder acquired = new LongAdder();
+        final LongAdder totalWaitNanos = new LongAdder();
+        final AtomicLong maxWaitNanos = new AtomicLong();
+
+        Bucket(String name, double permitsPerSecond, int burst) {
+            this.name = name;
+            this.intervalNanos = (long) (1_000_000_000L / permitsPerSecond);
+            this.burstNanos = intervalNanos * Math.max(0, burst - 1);
+            this.next = System.nanoTime();
+        }
+
+        /**
+         * Giữ chỗ một permit, trả về thời gian phải chờ (nano)
+         */
+        private synchronized long reserve() {
+            long now = System.nanoTime();
+            long earliest = now - burstNanos;
+            if (next < earliest) next = earliest;
+            long wait = Math.max(0, next - now);
+            next += intervalNanos;
+            return wait;
+        }
+
+        void acquire() throws InterruptedException {
+            long wait = reserve();
+            if (wait > 0) {
+                waiting.incrementAndGet();
+                try {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                } finally {
+                    waiting.decrementAndGet();
+                }
+            }
+            record(wait);
+        }
+
+        /**
+         * Bản không chặn: giữ chỗ ngay, future hoàn thành khi tới lượt
+         */
+        CompletableFuture<Void> acquireAsync(Executor executor) {
+            long wait = reserve();
+            record(wait);
+            if (wait <= 0) return CompletableFuture.completedFuture(null);
+
+            waiting.incrementAndGet();
+            return CompletableFuture.runAsync(waiting::decrementAndGet,
+                    CompletableFuture.delayedExecutor(wait, TimeUnit.NANOSECONDS, executor));
+        }
+
+        private void record(long wait) {
+            acquired.increment();
+            totalWaitNanos.add(wait);
+            maxWaitNanos.accumulateAndGet(wait, Math::max);
+        }
+    }
+
+    private final Bucket global;
+    private final int burst;
+    private final Map<String, Bucket> endpoints = new ConcurrentHashMap<>();
+    private final Map<String, Boolean> unlimited = new ConcurrentHashMap<>();
+
+    public RateLimiter(double globalPerSecond, int burst) {
+        this.burst = Math.max(1, burst);
+        this.global = globalPerSecond > 0 ? new Bucket("global", globalPerSecond, this.burst) : null;
+    }
+
+    static RateLimiter fromSystemProperties() {
+        return new RateLimiter(Config.getDouble("mfo.rate.global", 10), Config.getInt("mfo.rate.burst", 2));
+    }
+
+    /**
+     * Chờ tới lượt gọi endpoint (bucket riêng trước, rồi bucket chung)
+     */
+    void acquire(String path) throws InterruptedException {
+        Bucket bucket = endpointBucket(path);
+        if (bucket != null) bucket.acquire();
+        if (global != null) global.acquire();
+    }
+
+    /**
+     * Bản không chặn của {@link #acquire(String)}
+     */
+    CompletableFuture<Void> acquireAsync(String path, Executor executor) {
+        Bucket bucket = endpointBucket(path);
+        CompletableFuture<Void> f = bucket == null ? CompletableFuture.completedFuture(null) : bucket.acquireAsync(executor);
+        return global == null ? f : f.thenCompose(v -> global.acquireAsync(executor));
+    }
+
+    /**
+     * Tổng số request đang chờ permit
+     */
+    int queueDepth() {
+        int depth = global == null ? 0 : global.waiting.get();
+        for (Bucket b : endpoints.values()) depth += b.waiting.get();
+        return depth;
+    }
+
+    String summary() {
+        StringBuilder sb = new StringBuilder();
+        if (global != null) append(sb, global);
+        new TreeMap<>(endpoints).values().forEach(b -> append(sb, b));
+        return sb.toString();
+    }
+
+    private Bucket endpointBucket(String path) {
+        if (unlimited.containsKey(path)) return null;
+        Bucket bucket = endpoints.get(path);
+        if (bucket != null) return bucket;
+
+        String name = path.substring(path.lastIndexOf('/') + 1);
+        double rate = Config.getDouble("mfo.rate." + name, name.equals("doLogin") ? 2 : 0);
+        if (rate <= 0) {
+            unlimited.put(path, Boolean.TRUE);
+            return null;
+        }
+        return endpoints.computeIfAbsent(path, p -> new Bucket(name, rate, burst));
+    }
+
+    private static void append(StringBuilder sb, Bucket b) {
+        long n = b.acquired.sum();
+        double avgMs = n == 0 ? 0 : b.totalWaitNanos.sum() / 1e6 / n;
+        sb.append(String.format("🚦 %-30s permits=%d waiting=%d avgWait=%.1fms maxWait=%.1fms%n",
+                b.name, n, b.waiting.get(), avgMs, b.maxWaitNanos.get() / 1e6));
+    }
+}
@@ -0,0 +1,263 @@
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Ghi body JSON của các API thẳng vào buffer byte dùng lại theo thread, có escape JSON đúng chuẩn
+ * (password chứa {@code "} hay {@code \} không còn làm hỏng request).
+ * <p>
+ * Tên field được encode sẵn thành byte một lần. {@link #publisher()} trỏ thẳng vào buffer của thread
+ * hiện tại, nên chỉ hợp lệ tới lần encode tiếp theo trên cùng thread (đủ cho HttpClient.send vì
+ * send chỉ trả về khi request đã gửi xong); gửi bất đồng bộ thì dùng {@link #detached()}.
+ */
+public class RequestEncoder {
+
+    private static final byte[] K_USERNAME = key("username");
+    private static final byte[] K_PASSWORD = key("password");
+    private static final byte[] K_CODE = key("code");
+    private static final byte[] K_TYPE = key("type");
+    private static final byte[] K_SOURCE = key("source");
+    private static final byte[] K_ACTIVITY_NAME = key("activityName");
+    private static final byte[] K_USER_ID = key("userId");
+    private static final byte[] K_PLATFORM = key("platForm");
+    private static final byte[] K_DATE_NO = key("dateNo");
+    private static final byte[] K_SIGN_IN_TYPE = key("signInType");
+    private static final byte[] K_MONTH = key("month");
+    private static final byte[] K_TASK_ID = key("taskId");
+
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private static final ThreadLocal<RequestEncoder> LOCAL = ThreadLocal.withInitial(RequestEncoder::new);
+
+    private byte[] buf = new byte[256];
+    private int len;
+    private boolean first;
+
+    // ================= BODY CÁC API =================
+    static RequestEncoder login(Account account, String captcha) {
+        return local()
+                .str(K_USERNAME, account.username())
+                .str(K_PASSWORD, account.password())
+                .str(K_CODE, captcha)
+                .num(K_TYPE, 1)
+                .str(K_SOURCE, "web");
+    }
+
+    static RequestEncoder signInList(Session session) {
+        return local()
+                .str(K_ACTIVITY_NAME, "signin")
+                .id(K_USER_ID, session.userId())
+                .str(K_PLATFORM, "web");
+    }
+
+    static RequestEncoder signin(Session session, int dateNo, int type) {
+        return local()
+                .num(K_DATE_NO, dateNo)
+                .id(K_USER_ID, session.userId())
+                .str(K_PLATFORM, "web")
+                .num(K_SIGN_IN_TYPE, type);
+    }
+
+    /**
+     * @param yearMonth dạng yyyyMM, ghi ra chuỗi "yyyyMM"
+     */
+    static RequestEncoder fullPrize(Session session, int yearMonth) {
+        return local()
+                .quotedNum(K_MONTH, yearMonth)
+                .str(K_PLATFORM, "web")
+                .id(K_USER_ID, session.userId());
+    }
+
+    static RequestEncoder task(Session session) {
+        return local()
+                .num(K_TASK_ID, 1)
+                .str(K_PLATFORM, "web")
+                .id(K_USER_ID, session.userId());
+    }
+
+    // ================= WRITER =================
+    static RequestEncoder local() {
+        RequestEncoder e = LOCAL.get();
+        e.len = 0;
+        e.first = true;
+        e.put((byte) '{');
+        return e;
+    }
+
+    RequestEncoder str(byte[] key, String value) {
+        field(key);
+        string(value);
+        return this;
+    }
+
+    RequestEncoder num(byte[] key, long value) {
+        field(key);
+        number(value);
+        return this;
+    }
+
+    RequestEncoder quotedNum(byte[] key, long value) {
+        field(key);
+        put((byte) '"');
+        number(value);
+        put((byte) '"');
+        return this;
+    }
+
+    /**
+     * userId: ghi dạng số nếu toàn chữ số (như server trả về), ngược lại ghi dạng chuỗi
+     */
+    RequestEncoder id(byte[] key, String value) {
+        field(key);
+        if (isDigits(value)) {
+            ensure(value.length());
+            for (int i = 0; i < value.length(); i++) buf[len++] = (byte) value.charAt(i);
+        } else {
+            string(value);
+        }
+        return this;
+    }
+
+    /**
+     * Đóng object, trả về publisher trỏ vào buffer hiện tại (không copy)
+     */
+    HttpRequest.BodyPublisher publisher() {
+        put((byte) '}');
+        return HttpRequest.BodyPublishers.ofByteArray(buf, 0, len);
+    }
+
+    /**
+     * Đóng object, trả về publisher trên bản copy của buffer (dùng khi request gửi bất đồng bộ)
+     */
+    HttpRequest.BodyPublisher detached() {
+        return HttpRequest.BodyPublishers.ofByteArray(toByteArray());
+    }
+
+    /**
+     * Đóng object và copy ra mảng riêng
+     */
+    byte[] toByteArray() {
+        put((byte) '}');
+        return Arrays.copyOf(buf, len);
+    }
+
+    private void field(byte[] key) {
+        if (!first) put((byte) ',');
+        first = false;
+        ensure(key.length);
+        System.arraycopy(key, 0, buf, len, key.length);
+        len += key.length;
+    }
+
+    private void number(long value) {
+        if (value == 0) {
+            put((byte) '0');
+            return;
+        }
+        if (value < 0) {
+            put((byte) '-');
+            value = -value;
+        }
+        int start = len;
+        ensure(20);
+        while (value > 0) {
+            buf[len++] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        // đảo ngược các chữ số vừa ghi
+        for (int i = start, j = len - 1; i < j; i++, j--) {
+            byte t = buf[i];
+            buf[i] = buf[j];
+            buf[j] = t;
+        }
+    }
+
+    private void string(String s) {
+        if (s == null) {
+            ensure(4);
+            buf[len++] = 'n';
+            buf[len++] = 'u';
+            buf[len++] = 'l';
+            buf[len++] = 'l';
+            return;
+        }
+        ensure(s.length() * 3 + 2);
+        buf[len++] = '"';
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                ensure(2);
+                buf[len++] = '\\';
+                buf[len++] = (byte) c;
+            } else if (c < 0x20) {
+                escapeControl(c);
+            } else if (c < 0x80) {
+                buf[len++] = (byte) c;
+            } else if (c < 0x800) {
+                buf[len++] = (byte) (0xC0 | (c >> 6));
+                buf[len++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, s.charAt(++i));
+                ensure(4);
+                buf[len++] = (byte) (0xF0 | (cp >> 18));
+                buf[len++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                buf[len++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                buf[len++] = (byte) (0x80 | (cp & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                buf[len++] = '?'; // surrogate lẻ, không encode được
+            } else {
+                buf[len++] = (byte) (0xE0 | (c >> 12));
+                buf[len++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buf[len++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        ensure(1);
+        buf[len++] = '"';
+    }
+
+    private void escapeControl(char c) {
+        ensure(6);
+        buf[len++] = '\\';
+        switch (c) {
+            case '\n' -> buf[len++] = 'n';
+            case '\r' -> buf[len++] = 'r';
+            case '\t' -> buf[len++] = 't';
+            case '\b' -> buf[len++] = 'b';
+            case '\f' -> buf[len++] = 'f';
+            default -> {
+                buf[len++] = 'u';
+                buf[len++] = '0';
+                buf[len++] = '0';
+                buf[len++] = HEX[c >> 4];
+                buf[len++] = HEX[c & 0xF];
+            }
+        }
+    }
+
+    private void put(byte b) {
+        ensure(1);
+        buf[len++] = b;
+    }
+
+    private void ensure(int extra) {
+        if (len + extra > buf.length) buf = Arrays.copyOf(buf, Math.max(buf.length * 2, len + extra));
+    }
+
+    private static boolean isDigits(String s) {
+        if (s == null || s.isEmpty() || s.length() > 19) return false;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') return false;
+        }
+        return true;
+    }
+
+    private static byte[] key(String name) {
+        return ("\"" + name + "\":").getBytes(StandardCharsets.US_ASCII);
+    }
+
+    @Override
+    public String toString() {
+        return new String(buf, 0, len, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,360 @@
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Đọc một lượt (single-pass) body JSON dạng byte UTF-8 và chỉ giữ lại các field cần dùng:
+ * {@code state} (cấp ngoài cùng), {@code data.signDay}, {@code token}, {@code userId}.
+ * <p>
+ * So khớp key trực tiếp trên byte, không tạo String trung gian; chỉ giá trị token / userId
+ * được copy ra. Có thể nạp dữ liệu theo từng đoạn bằng {@link #feed} rồi gọi {@link #finish}.
+ * Một instance chỉ dùng cho một response.
+ * <p>
+ * Giá trị token / userId có escape sai (escape unicode không đủ 4 chữ số hex, ký tự escape lạ) làm cả response
+ * bị coi là hỏng: {@link #state()} trả về {@link ApiState#NONE} như response không đọc được.
+ */
+public class ResponseParser {
+
+    private static final byte[] KEY_STATE = ascii("state");
+    private static final byte[] KEY_DATA = ascii("data");
+    private static final byte[] KEY_SIGN_DAY = ascii("signDay");
+    private static final byte[] KEY_TOKEN = ascii("token");
+    private static final byte[] KEY_USER_ID = ascii("userId");
+
+    // chế độ của máy trạng thái
+    private static final int SCAN = 0;
+    private static final int KEY = 1;
+    private static final int KEY_ESC = 2;
+    private static final int STRING = 3;
+    private static final int STRING_ESC = 4;
+    private static final int AFTER_KEY = 5;
+    private static final int VALUE_START = 6;
+    private static final int NUMBER = 7;
+    private static final int CAPTURE_STRING = 8;
+    private static final int CAPTURE_STRING_ESC = 9;
+    private static final int CAPTURE_SCALAR = 10;
+
+    // field đang chờ giá trị
+    private static final int F_NONE = 0;
+    private static final int F_STATE = 1;
+    private static final int F_DATA = 2;
+    private static final int F_SIGN_DAY = 3;
+    private static final int F_TOKEN = 4;
+    private static final int F_USER_ID = 5;
+
+    private int mode = SCAN;
+    private int depth;
+    private long objectBits;  // bit d = 1 nếu container ở độ sâu d là object
+    private boolean expectKey;
+    private int dataDepth = -1;
+    private boolean pendingData;
+
+    private final byte[] key = new byte[16];
+    private int keyLen;         // -1 = key dài / có escape, chắc chắn không phải key cần tìm
+    private int field = F_NONE;
+
+    private long number;
+    private boolean negative;
+    private boolean quotedNumber;
+    private int digits;
+
+    private byte[] capture = new byte[32];
+    private int captureLen;
+    private boolean captureEscaped;
+
+    private int state = ApiState.NONE;
+    private int signDay = -1;
+    private String token;
+    private String userId;
+    private boolean malformed;
+
+    /**
+     * Parse toàn bộ body trong một lần
+     */
+    static ResponseParser parse(byte[] body) {
+        ResponseParser p = new ResponseParser();
+        p.feed(body, 0, body.length);
+        p.finish();
+        return p;
+    }
+
+    void feed(byte[] buf, int off, int len) {
+        int end = off + len;
+        for (int i = off; i < end; i++) {
+            accept(buf[i]);
+        }
+    }
+
+    /**
+     * Kết thúc input: chốt giá trị số / scalar còn dở ở cuối body
+     */
+    void finish() {
+        if (mode == NUMBER) endNumber();
+        else if (mode == CAPTURE_SCALAR) endCapture();
+        mode = SCAN;
+    }
+
+    // ================= KẾT QUẢ =================
+    int state() {
+        return malformed ? ApiState.NONE : state;
+    }
+
+    /**
+     * @return data.signDay, -1 nếu không có
+     */
+    int signDay() {
+        return signDay;
+    }
+
+    String token() {
+        return token == null ? "" : token;
+    }
+
+    String userId() {
+        return userId == null ? "" : userId;
+    }
+
+    // ================= STATE MACHINE =================
+    private void accept(byte c) {
+        switch (mode) {
+            case SCAN -> scan(c);
+            case KEY -> {
+                if (c == '"') endKey();
+                else if (c == '\\') {
+                    keyLen = -1;
+                    mode = KEY_ESC;
+                } else if (keyLen >= 0) {
+                    if (keyLen < key.length) key[keyLen++] = c;
+                    else keyLen = -1;
+                }
+            }
+            case KEY_ESC -> mode = KEY;
+            case STRING -> {
+                if (c == '"') mode = SCAN;
+                else if (c == '\\') mode = STRING_ESC;
+            }
+            case STRING_ESC -> mode = STRING;
+            case AFTER_KEY -> {
+                if (c == ':') {
+                    expectKey = false;
+                    mode = VALUE_START;
+                }
+            }
+            case VALUE_START -> valueStart(c);
+            case NUMBER -> {
+                if (c >= '0' && c <= '9') {
+                    if (digits++ < 18) number = number * 10 + (c - '0');
+                } else if (c == '-' && digits == 0 && !negative) {
+                    negative = true;
+                } else {
+                    endNumber();
+                    if (quotedNumber) {
+                        // bỏ qua phần còn lại của chuỗi
+                        mode = c == '"' ? SCAN : (c == '\\' ? STRING_ESC : STRING);
+                    } else {
+                        mode = SCAN;
+                        scan(c);
+                    }
+                }
+            }
+            case CAPTURE_STRING -> {
+                if (c == '"') {
+                    endCapture();
+                    mode = SCAN;
+                } else {
+                    if (c == '\\') {
+                        captureEscaped = true;
+                        mode = CAPTURE_STRING_ESC;
+                    }
+                    append(c);
+                }
+            }
+            case CAPTURE_STRING_ESC -> {
+                append(c);
+                mode = CAPTURE_STRING;
+            }
+            case CAPTURE_SCALAR -> {
+                if (c == ',' || c == '}' || c == ']' || isWhitespace(c)) {
+                    endCapture();
+                    mode = SCAN;
+                    scan(c);
+                } else {
+                    append(c);
+                }
+            }
+            default -> throw new IllegalStateException("mode " + mode);
+        }
+    }
+
+    private void scan(byte c) {
+        switch (c) {
+            case '{' -> {
+                depth++;
+                if (depth < 64) objectBits |= 1L << depth;
+                expectKey = true;
+                if (pendingData) {
+                    dataDepth = depth;
+                    pendingData = false;
+                }
+            }
+            case '[' -> {
+                depth++;
+                if (depth < 64) objectBits &= ~(1L << depth);
+                expectKey = false;
+            }
+            case '}', ']' -> {
+                if (depth == dataDepth) dataDepth = -1;
+                depth--;
+                expectKey = false;
+            }
+            case ',' -> expectKey = depth < 64 && (objectBits & (1L << depth)) != 0;
+            case '"' -> {
+                if (expectKey) {
+                    keyLen = 0;
+                    mode = KEY;
+                } else {
+                    mode = STRING;
+                }
+            }
+            default -> {
+            }
+        }
+    }
+
+    private void endKey() {
+        field = F_NONE;
+        if (keyLen > 0) {
+            if (depth == 1 && matches(KEY_STATE)) field = F_STATE;
+            else if (depth == 1 && matches(KEY_DATA)) field = F_DATA;
+            else if (depth == dataDepth && matches(KEY_SIGN_DAY)) field = F_SIGN_DAY;
+            else if (token == null && matches(KEY_TOKEN)) field = F_TOKEN;
+            else if (userId == null && matches(KEY_USER_ID)) field = F_USER_ID;
+        }
+        mode = AFTER_KEY;
+    }
+
+    private void valueStart(byte c) {
+        if (isWhitespace(c)) return;
+
+        switch (field) {
+            case F_STATE, F_SIGN_DAY -> {
+                if (c == '"' || c == '-' || (c >= '0' && c <= '9')) {
+                    number = 0;
+                    digits = 0;
+                    negative = c == '-';
+                    quotedNumber = c == '"';
+                    if (c >= '0' && c <= '9') {
+                        number = c - '0';
+                        digits = 1;
+                    }
+                    mode = NUMBER;
+                    return;
+                }
+            }
+            case F_TOKEN, F_USER_ID -> {
+                if (c == '"') {
+                    captureLen = 0;
+                    captureEscaped = false;
+                    mode = CAPTURE_STRING;
+                    return;
+                }
+                if (c != '{' && c != '[') {
+                    captureLen = 0;
+                    captureEscaped = false;
+                    append(c);
+                    mode = CAPTURE_SCALAR;
+                    return;
+                }
+            }
+            case F_DATA -> pendingData = c == '{';
+            default -> {
+            }
+        }
+
+        field = F_NONE;
+        mode = SCAN;
+        scan(c);
+    }
+
+    private void endNumber() {
+        if (digits > 0) {
+            long value = negative ? -number : number;
+            int v = (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, value));
+            if (field == F_STATE) state = v;
+            else if (field == F_SIGN_DAY) signDay = v;
+        }
+        field = F_NONE;
+    }
+
+    private void endCapture() {
+        String value = new String(capture, 0, captureLen, StandardCharsets.UTF_8);
+        if (captureEscaped) value = unescape(value);
+        if (value == null) malformed = true;
+        else if (field == F_TOKEN) token = value;
+        else if (field == F_USER_ID) userId = "null".equals(value) ? "" : value;
+        field = F_NONE;
+    }
+
+    private void append(byte c) {
+        if (captureLen == capture.length) capture = Arrays.copyOf(capture, captureLen * 2);
+        capture[captureLen++] = c;
+    }
+
+    private boolean matches(byte[] name) {
+        return keyLen == name.length && Arrays.equals(key, 0, keyLen, name, 0, name.length);
+    }
+
+    private static boolean isWhitespace(byte c) {
+        return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+    }
+
+    /**
+     * @return chuỗi đã bỏ escape, null nếu có escape không hợp lệ theo JSON
+     */
+    static String unescape(String s) {
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c != '\\') {
+                sb.append(c);
+                continue;
+            }
+            if (++i >= s.length()) return null;
+            char e = s.charAt(i);
+            switch (e) {
+                case '"', '\\', '/' -> sb.append(e);
+                case 'n' -> sb.append('\n');
+                case 't' -> sb.append('\t');
+                case 'r' -> sb.append('\r');
+                case 'b' -> sb.append('\b');
+                case 'f' -> sb.append('\f');
+                case 'u' -> {
+                    int code = i + 4 < s.length() ? hex4(s, i + 1) : -1;
+                    if (code < 0) return null;
+                    sb.append((char) code);
+                    i += 4;
+                }
+                default -> {
+                    return null;
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return giá trị của 4 chữ số hex bắt đầu tại {@code from}, -1 nếu có ký tự không phải hex
+     */
+    private static int hex4(String s, int from) {
+        int code = 0;
+        for (int i = from; i < from + 4; i++) {
+            int d = Character.digit(s.charAt(i), 16);
+            if (d < 0) return -1;
+            code = code << 4 | d;
+        }
+        return code;
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+}
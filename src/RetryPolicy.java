@@ -0,0 +1,73 @@
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpHeaders;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Chính sách thử lại: exponential backoff có jitter, trong giới hạn tổng thời gian (budget) của một call.
+ * Chỉ thử lại endpoint idempotent; endpoint khác chỉ thử lại khi chưa kết nối được (request chưa gửi đi)
+ * hoặc bị server từ chối vì quá tải (HTTP 429, request chưa được xử lý).
+ * Với 429, thời gian chờ không ngắn hơn {@code Retry-After} của server.
+ */
+public record RetryPolicy(int maxAttempts, Duration baseDelay, Duration maxDelay, Duration budget, Set<String> idempotentPaths) {
+
+    static final int TOO_MANY_REQUESTS = 429;
+
+    static RetryPolicy fromSystemProperties() {
+        return new RetryPolicy(
+                Math.max(1, Config.getInt("mfo.retry.maxAttempts", 4)),
+                Duration.ofMillis(Config.getLong("mfo.retry.baseDelayMs", 300)),
+                Duration.ofMillis(Config.getLong("mfo.retry.maxDelayMs", 5_000)),
+                Duration.ofMillis(Config.getLong("mfo.retry.budgetMs", 30_000)),
+                Set.of("/webapi/signIn/getSignInList", "/webapi/login/getCaptcha"));
+    }
+
+    boolean canRetry(String path, IOException error) {
+        return idempotentPaths.contains(path) || error instanceof ConnectException || error instanceof HttpConnectTimeoutException;
+    }
+
+    boolean canRetry(String path, int httpStatus) {
+        return httpStatus == TOO_MANY_REQUESTS || (httpStatus >= 500 && idempotentPaths.contains(path));
+    }
+
+    /**
+     * Thời gian chờ trước lần thử thứ attempt + 1 ("full jitter": ngẫu nhiên trong [0, base * 2^(attempt-1)])
+     */
+    long backoffMillis(int attempt) {
+        long cap = Math.min(maxDelay.toMillis(), baseDelay.toMillis() << Math.min(attempt - 1, 20));
+        return cap <= 0 ? 0 : ThreadLocalRandom.current().nextLong(cap + 1);
+    }
+
+    /**
+     * Như {@link #backoffMillis(int)} nhưng không ngắn hơn {@code retryAfterMs} (từ header Retry-After, -1 = không có)
+     */
+    long backoffMillis(int attempt, long retryAfterMs) {
+        return Math.max(retryAfterMs, backoffMillis(attempt));
+    }
+
+    /**
+     * Đọc header Retry-After (số giây hoặc ngày giờ HTTP)
+     *
+     * @return số ms cần chờ, -1 nếu không có / sai định dạng
+     */
+    static long retryAfterMillis(HttpHeaders headers) {
+        String value = headers.firstValue("Retry-After").map(String::strip).orElse("");
+        if (value.isEmpty()) return -1;
+        try {
+            return Math.max(0, Long.parseLong(value) * 1000);
+        } catch (NumberFormatException ignored) {
+        }
+        try {
+            ZonedDateTime at = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME);
+            return Math.max(0, at.toInstant().toEpochMilli() - System.currentTimeMillis());
+        } catch (DateTimeParseException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,309 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.net.CookieHandler;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Nhật ký chạy dạng append-only: ghi lại theo account và theo ngày các bước đã thành công
+ * (login, doSignin cho dateNo nào, getfullPrize cho tháng nào, getTaskPrize), để lần chạy sau
+ * (vd sau khi process chết giữa batch) bỏ qua phần đã xong và chạy tiếp từ chỗ dừng.
+ * <p>
+ * Định dạng mỗi dòng (UTF-8): yyyy-MM-dd|username|STEP|giá trị, với LOGIN giá trị là userId|token.
+ * Ghi chỉ cập nhật trạng thái trong bộ nhớ và xếp dòng vào hàng đợi; một thread nền ghi dồn và fsync
+ * mỗi {@code mfo.journal.syncMs}, nên không làm chậm các API call. Dòng ghi dở khi process chết bị bỏ qua lúc đọc.
+ * Khi mở và trước mỗi lần chạy hằng ngày của {@link Daemon}, các dòng của ngày cũ được dọn khỏi file.
+ */
+public class RunJournal implements AutoCloseable {
+
+    /**
+     * Những gì account đã làm xong trong ngày
+     */
+    private static final class Progress {
+        volatile String userId;
+        volatile String token;
+        volatile int signedDate = -1;
+        volatile int fullPrizeMonth = -1;
+        volatile boolean taskDone;
+    }
+
+    private final Path file;
+    private final long syncMs;
+    private final Map<String, Progress> progress = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<String> pending = new ConcurrentLinkedQueue<>();
+    private ScheduledExecutorService flusher;
+    private FileChannel channel;
+    private volatile LocalDate day = MfoApi.today();
+
+    public RunJournal(Path file, long syncMs) {
+        this.file = file;
+        this.syncMs = syncMs;
+    }
+
+    /**
+     * @return null nếu tắt journal (-Dmfo.journal.file=-)
+     */
+    static RunJournal fromSystemProperties() {
+        String file = Config.get("mfo.journal.file", "journal.log");
+        if (file.equals("-")) return null;
+        return new RunJournal(Path.of(file), Math.max(10, Config.getLong("mfo.journal.syncMs", 200)));
+    }
+
+    // ================= MỞ / ĐÓNG =================
+
+    /**
+     * Đọc các bước đã xong hôm nay, dọn dòng của ngày cũ, mở file để ghi tiếp
+     */
+    void open() {
+        progress.clear();
+        day = MfoApi.today();
+        try {
+            if (Files.exists(file) && load() > 0) rewrite();
+            channel = openForAppend();
+        } catch (IOException e) {
+            System.err.println("⚠️ Không mở được journal " + file + ", chạy không có journal: " + e.getMessage());
+            return;
+        }
+
+        flusher = Executors.newSingleThreadScheduledExecutor(ApiClient.daemonThreads("mfo-journal-"));
+        flusher.scheduleWithFixedDelay(this::flush, syncMs, syncMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return số dòng bị bỏ (ngày cũ / hỏng)
+     */
+    private int load() throws IOException {
+        String today = day.toString();
+        int dropped = 0;
+        try (BufferedReader br = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                String[] parts = line.split("\\|", 4);
+                if (parts.length != 4 || !parts[0].equals(today) || !apply(parts[1], parts[2], parts[3])) dropped++;
+            }
+        } catch (IOException e) {
+            // dòng cuối ghi dở có thể không phải UTF-8 hợp lệ: giữ những gì đã đọc được
+            System.err.println("⚠️ Journal " + file + " bị hỏng ở cuối, bỏ phần còn lại: " + e.getMessage());
+            dropped++;
+        }
+        return dropped;
+    }
+
+    private boolean apply(String username, String step, String value) {
+        try {
+            Progress p = progress.computeIfAbsent(username, u -> new Progress());
+            switch (RunListener.Step.valueOf(step)) {
+                case LOGIN -> {
+                    String[] session = value.split("\\|", 2);
+                    if (session.length != 2) return false;
+                    p.userId = session[0];
+                    p.token = session[1];
+                }
+                case SIGNIN -> p.signedDate = Integer.parseInt(value);
+                case FULL_PRIZE -> p.fullPrizeMonth = Integer.parseInt(value);
+                case TASK -> p.taskDone = true;
+                default -> {
+                    return false;
+                }
+            }
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private FileChannel openForAppend() throws IOException {
+        FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        restrictPermissions(file);
+        return ch;
+    }
+
+    /**
+     * Dọn dòng của ngày cũ khi app chạy liên tục qua nhiều ngày (daemon gọi trước mỗi lần chạy hằng ngày),
+     * để file không lớn mãi và lần khởi động lại không phải đọc lại cả lịch sử
+     */
+    synchronized void compact() {
+        if (channel == null) return;
+        rollover();
+        flush();
+        try {
+            channel.close();
+            rewrite();
+            channel = openForAppend();
+        } catch (IOException e) {
+            System.err.println("⚠️ Không dọn được journal " + file + ": " + e.getMessage());
+            try {
+                if (!channel.isOpen()) channel = openForAppend();
+            } catch (IOException reopen) {
+                System.err.println("⚠️ Không mở lại được journal " + file + ", chạy tiếp không có journal: " + reopen.getMessage());
+                channel = null;
+            }
+        }
+    }
+
+    /**
+     * Viết lại file chỉ với các bước của hôm nay (ghi file tạm rồi move, như {@link TokenStore})
+     */
+    private void rewrite() throws IOException {
+        List<String> lines = new ArrayList<>();
+        String today = day.toString();
+        progress.forEach((username, p) -> {
+            if (p.token != null) lines.add(line(today, username, RunListener.Step.LOGIN, p.userId + "|" + p.token));
+            if (p.signedDate > 0) lines.add(line(today, username, RunListener.Step.SIGNIN, String.valueOf(p.signedDate)));
+            if (p.fullPrizeMonth > 0) lines.add(line(today, username, RunListener.Step.FULL_PRIZE, String.valueOf(p.fullPrizeMonth)));
+            if (p.taskDone) lines.add(line(today, username, RunListener.Step.TASK, ""));
+        });
+
+        Path dir = file.toAbsolutePath().getParent();
+        Path tmp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+        try {
+            restrictPermissions(tmp);
+            Files.write(tmp, lines, StandardCharsets.UTF_8);
+            try {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (flusher != null) flusher.shutdown();
+        flush();
+        try {
+            if (channel != null) channel.close();
+        } catch (IOException e) {
+            System.err.println("⚠️ Lỗi đóng journal " + file + ": " + e.getMessage());
+        }
+    }
+
+    // ================= GHI =================
+    void login(Session session) {
+        Progress p = progress(session.account());
+        p.userId = session.userId();
+        p.token = session.token();
+        append(session.account(), RunListener.Step.LOGIN, session.userId() + "|" + session.token());
+    }
+
+    void signed(Account account, int dateNo) {
+        progress(account).signedDate = dateNo;
+        append(account, RunListener.Step.SIGNIN, String.valueOf(dateNo));
+    }
+
+    void fullPrize(Account account, int yearMonth) {
+        progress(account).fullPrizeMonth = yearMonth;
+        append(account, RunListener.Step.FULL_PRIZE, String.valueOf(yearMonth));
+    }
+
+    void taskDone(Account account) {
+        progress(account).taskDone = true;
+        append(account, RunListener.Step.TASK, "");
+    }
+
+    private void append(Account account, RunListener.Step step, String value) {
+        pending.add(line(day.toString(), account.username(), step, value));
+    }
+
+    private static String line(String day, String username, RunListener.Step step, String value) {
+        return day + "|" + username + "|" + step + "|" + value;
+    }
+
+    /**
+     * Ghi dồn các dòng đang chờ và fsync (thread nền gọi định kỳ; gọi thêm khi kết thúc batch)
+     */
+    synchronized void flush() {
+        if (channel == null || pending.isEmpty()) return;
+
+        StringBuilder sb = new StringBuilder();
+        String line;
+        while ((line = pending.poll()) != null) sb.append(line).append('\n');
+        try {
+            ByteBuffer buf = ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8));
+            while (buf.hasRemaining()) channel.write(buf);
+            channel.force(false);
+        } catch (IOException e) {
+            System.err.println("⚠️ Không ghi được journal " + file + ": " + e.getMessage());
+        }
+    }
+
+    // ================= ĐỌC =================
+
+    /**
+     * Session đã login hôm nay (kể cả khi process chết trước khi {@link TokenStore} kịp ghi), null nếu chưa có
+     */
+    Session session(Account account, CookieHandler cookies) {
+        Progress p = current(account);
+        return p == null || p.token == null ? null : new Session(account, p.token, p.userId, cookies);
+    }
+
+    /**
+     * @return dateNo đã điểm danh thành công hôm nay, -1 nếu chưa
+     */
+    int signedDate(Account account) {
+        Progress p = current(account);
+        return p == null ? -1 : p.signedDate;
+    }
+
+    boolean fullPrizeDone(Account account, int yearMonth) {
+        Progress p = current(account);
+        return p != null && p.fullPrizeMonth == yearMonth;
+    }
+
+    /**
+     * @return đã nhận quà task hôm nay → account xong, không cần gọi API nào nữa
+     */
+    boolean finished(Account account) {
+        Progress p = current(account);
+        return p != null && p.taskDone;
+    }
+
+    private Progress current(Account account) {
+        rollover();
+        return progress.get(account.username());
+    }
+
+    private Progress progress(Account account) {
+        rollover();
+        return progress.computeIfAbsent(account.username(), u -> new Progress());
+    }
+
+    /**
+     * Qua ngày mới (app chạy liên tục) → trạng thái hôm qua không còn giá trị
+     */
+    private void rollover() {
+        LocalDate today = MfoApi.today();
+        if (today.equals(day)) return;
+        synchronized (this) {
+            if (today.equals(day)) return;
+            progress.clear();
+            day = today;
+        }
+    }
+
+    private static void restrictPermissions(Path path) {
+        try {
+            Files.setPosixFilePermissions(path, PosixFilePermissions.fromString("rw-------"));
+        } catch (UnsupportedOperationException | IOException ignored) {
+            // Windows: không hỗ trợ quyền POSIX
+        }
+    }
+}
@@ -0,0 +1,15 @@
+/**
+ * Nhận log / trạng thái / bước xử lý của từng account (UI hoặc console)
+ */
+public interface RunListener {
+
+    enum Step {
+        LOGIN, SIGNIN, FULL_PRIZE, TASK, DONE, ALREADY_CLAIMED, ERROR
+    }
+
+    void log(Account account, String message);
+
+    void status(Account account, String message);
+
+    void step(Account account, Step step);
+}
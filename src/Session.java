@@ -0,0 +1,8 @@
+import java.net.CookieHandler;
+
+/**
+ * Phiên đăng nhập của một account (bất biến, dùng an toàn trên nhiều thread).
+ * Được tạo bởi {@link MfoApi#doLogin} và truyền vào mọi API call sau đó.
+ */
+public record Session(Account account, String token, String userId, CookieHandler cookies) {
+}
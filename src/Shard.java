@@ -0,0 +1,529 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Chia một file account cho nhiều process / máy dùng chung một thư mục ({@code --shard-dir}, vd NFS).
+ * <p>
+ * Mỗi worker ghi file heartbeat trong {@code workers/} chứa một bộ đếm tăng dần. Worker khác coi nó đã chết khi
+ * bộ đếm không đổi qua {@value #MISSED_BEATS} lần nhìn cách nhau một chu kỳ heartbeat (~{@code mfo.shard.leaseMs}),
+ * đo bằng đồng hồ của chính máy nhìn: không so mtime do máy khác ghi với giờ máy mình (lệch giờ, NFS cache thuộc tính).
+ * Account thuộc worker nào tính bằng consistent hash của username trên vòng các worker còn sống, nên khi thêm / mất
+ * một worker chỉ phần account của worker đó đổi chủ, và với worker id cố định mỗi account luôn về cùng một worker
+ * (dùng lại được session / lịch điểm danh của worker đó).
+ * <p>
+ * Trước khi chạy, worker giành lease cho từng account ({@code leases/<username>#<thế hệ>}, tạo bằng hard link nên
+ * chỉ một worker tạo được mỗi thế hệ); account xong thì ghi kết quả vào {@code results/<worker>.txt} và tạo
+ * {@code done/<username>}. Lease của worker đã chết (hết heartbeat) mà account chưa xong được worker khác giành lại
+ * bằng thế hệ kế tiếp. Account được nhận theo từng đợt {@code mfo.shard.chunk} để worker vào sau vẫn có phần.
+ * <p>
+ * Mỗi ngày (theo {@link MfoApi#CLOCK}) dùng một thư mục con yyyy-MM-dd riêng.
+ */
+public class Shard implements AutoCloseable {
+
+    /**
+     * Số lần liên tiếp thấy heartbeat không đổi (mỗi lần cách nhau ít nhất một chu kỳ) thì coi worker đã chết
+     */
+    static final int MISSED_BEATS = 3;
+
+    /**
+     * @param worker       id của worker, nên cố định giữa các lần chạy (mặc định hostname)
+     * @param virtualNodes số điểm của mỗi worker trên vòng hash (càng nhiều chia càng đều)
+     * @param leaseMs      worker không tăng heartbeat trong khoảng này (theo đồng hồ máy nhìn) bị coi là đã chết
+     * @param chunk        số account giành mỗi đợt
+     * @param awaitAll     hết account của mình thì chờ worker khác xong (để nhận lại account của worker chết)
+     *                     và in báo cáo chung, hay thoát ngay
+     */
+    record Options(Path dir, String worker, int virtualNodes, long leaseMs, int chunk, boolean awaitAll) {
+
+        static Options fromSystemProperties() {
+            return new Options(
+                    Path.of(Config.get("mfo.shard.dir", "shards")),
+                    Config.get("mfo.shard.worker", hostname()),
+                    Math.max(1, Config.getInt("mfo.shard.vnodes", 64)),
+                    Math.max(1_000, Config.getLong("mfo.shard.leaseMs", 30_000)),
+                    Math.max(1, Config.getInt("mfo.shard.chunk", 64)),
+                    Config.getBool("mfo.shard.wait", true));
+        }
+
+        Options withDir(Path dir) {
+            return new Options(dir, worker, virtualNodes, leaseMs, chunk, awaitAll);
+        }
+
+        Options withWorker(String worker) {
+            return new Options(dir, worker, virtualNodes, leaseMs, chunk, awaitAll);
+        }
+
+        private static String hostname() {
+            try {
+                return InetAddress.getLocalHost().getHostName();
+            } catch (IOException e) {
+                return "worker-" + ProcessHandle.current().pid();
+            }
+        }
+    }
+
+    /**
+     * Một dòng trong results/: account nào, thành công hay không, worker nào chạy, xong lúc nào
+     */
+    record Result(String username, boolean ok, String worker, long finishedAt) {
+    }
+
+    /**
+     * Kết quả gộp của mọi worker trong ngày
+     *
+     * @param byWorker       số account mỗi worker đã chạy
+     * @param failedAccounts username các account lỗi
+     */
+    record Report(int success, int failed, Map<String, Integer> byWorker, List<String> failedAccounts) {
+
+        int total() {
+            return success + failed;
+        }
+    }
+
+    /**
+     * Kết quả một lần giành lease
+     *
+     * @param remaining số account chưa xong (kể cả account vừa giành được)
+     */
+    private record Claim(List<Account> accounts, int remaining) {
+    }
+
+    /**
+     * Heartbeat của một worker theo quan sát của process này
+     */
+    private static final class Observed {
+        String beat;
+        long checkedAt;
+        int missed;
+    }
+
+    private final Options options;
+    private final Consumer<String> log;
+    private final Path workers;
+    private final Path leases;
+    private final Path done;
+    private final Path results;
+    private final Path heartbeatFile;
+    private final String token = UUID.randomUUID().toString();
+    private final Map<String, Path> held = new ConcurrentHashMap<>();
+    private final Map<String, Observed> observed = new ConcurrentHashMap<>();
+    private long beats;
+    private volatile boolean joined; // đã ghi heartbeat của mình (file heartbeat là của process này)
+    private ScheduledExecutorService heartbeat;
+    private BufferedWriter resultOut;
+
+    /**
+     * @param log nhận thông báo (chờ worker khác, nhận lại account của worker đã dừng)
+     */
+    public Shard(Options options, Consumer<String> log) {
+        this.options = options;
+        this.log = log;
+        Path day = options.dir().resolve(MfoApi.today().toString());
+        this.workers = day.resolve("workers");
+        this.leases = day.resolve("leases");
+        this.done = day.resolve("done");
+        this.results = day.resolve("results");
+        this.heartbeatFile = workers.resolve(key(options.worker()));
+    }
+
+    String worker() {
+        return options.worker();
+    }
+
+    /**
+     * Tạo thư mục, đăng ký worker và bắt đầu chạm heartbeat
+     *
+     * @throws IOException nếu không ghi được thư mục chung, hoặc worker id đang được một process khác dùng
+     */
+    void join() throws IOException, InterruptedException {
+        for (Path dir : List.of(workers, leases, done, results)) Files.createDirectories(dir);
+
+        // heartbeat của lần chạy trước (process đã chết) hay của process khác đang chạy: theo dõi tới khi biết chắc
+        if (alive(heartbeatFile)) {
+            log.accept("⏳ Worker id '" + options.worker() + "' đã có heartbeat, chờ xem process cũ còn chạy không");
+            String first = readQuietly(heartbeatFile);
+            while (alive(heartbeatFile)) {
+                if (!readQuietly(heartbeatFile).equals(first)) {
+                    throw new IOException("worker id '" + options.worker() + "' đang được process khác dùng (đặt --worker khác)");
+                }
+                Thread.sleep(beatPeriodMs());
+            }
+        }
+        writeBeat();
+        joined = true;
+        resultOut = Files.newBufferedWriter(results.resolve(key(options.worker()) + ".txt"), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+
+        heartbeat = Executors.newSingleThreadScheduledExecutor(ApiClient.daemonThreads("mfo-shard-"));
+        heartbeat.scheduleAtFixedRate(this::beat, beatPeriodMs(), beatPeriodMs(), TimeUnit.MILLISECONDS);
+    }
+
+    private long beatPeriodMs() {
+        return Math.max(1, options.leaseMs() / MISSED_BEATS);
+    }
+
+    private void beat() {
+        try {
+            writeBeat();
+        } catch (IOException e) {
+            System.err.println("⚠️ Không ghi được heartbeat " + heartbeatFile + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Ghi token|bộ đếm vào file heartbeat (ghi file tạm rồi move để worker khác không đọc phải file ghi dở).
+     * File tạm bắt đầu bằng '.', không trùng tên worker nào vì {@link #key} mã hóa dấu chấm.
+     */
+    private synchronized void writeBeat() throws IOException {
+        Path tmp = workers.resolve("." + heartbeatFile.getFileName() + ".tmp");
+        try {
+            Files.writeString(tmp, token + "|" + beats++, StandardCharsets.UTF_8);
+            try {
+                Files.move(tmp, heartbeatFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, heartbeatFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    // ================= CHẠY =================
+
+    /**
+     * Chạy phần account của worker này theo từng đợt tới khi mọi account trong danh sách đã xong
+     * (hoặc tới khi hết account giành được nếu {@code mfo.shard.wait=false})
+     *
+     * @return kết quả các account do worker này chạy
+     */
+    BatchRunner.Summary runAll(BatchRunner runner, List<Account> accounts, BatchRunner.ProgressCallback progress)
+            throws InterruptedException {
+        long start = System.nanoTime();
+        AtomicInteger finished = new AtomicInteger();
+        AtomicInteger success = new AtomicInteger();
+        boolean waiting = false;
+
+        while (true) {
+            Claim claim = claim(accounts);
+            if (claim.remaining() == 0) break;
+            if (claim.accounts().isEmpty()) {
+                if (!options.awaitAll()) break;
+                if (!waiting) {
+                    log.accept("⏳ Chờ worker khác xong " + claim.remaining() + " account");
+                    waiting = true;
+                }
+                Thread.sleep(Math.max(500, options.leaseMs() / 2));
+                continue;
+            }
+
+            waiting = false;
+            runner.runAll(claim.accounts(), (account, ok, d, t) -> {
+                finished(account, ok);
+                if (ok) success.incrementAndGet();
+                int done = finished.incrementAndGet();
+                if (progress != null) progress.onAccountDone(account, ok, done, accounts.size());
+            });
+        }
+
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        return new BatchRunner.Summary(finished.get(), success.get(), finished.get() - success.get(), elapsedMs);
+    }
+
+    /**
+     * Giành lease cho tối đa {@code chunk} account thuộc worker này (theo vòng hash các worker còn sống)
+     * chưa xong và chưa có worker sống nào giữ
+     */
+    private Claim claim(List<Account> accounts) {
+        Set<String> doneKeys = list(done);
+        Map<String, Integer> generations = new HashMap<>();
+        for (String name : list(leases)) {
+            int sep = name.lastIndexOf('#');
+            if (sep < 0) continue;
+            try {
+                generations.merge(name.substring(0, sep), Integer.parseInt(name.substring(sep + 1)), Math::max);
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        NavigableMap<Long, String> ring = ring(liveWorkers());
+        Map<String, Boolean> ownerAlive = new HashMap<>();
+
+        List<Account> claimed = new ArrayList<>();
+        int remaining = 0;
+        for (Account account : accounts) {
+            String key = key(account.username());
+            if (doneKeys.contains(key)) continue;
+            remaining++;
+            if (claimed.size() >= options.chunk() || held.containsKey(key)) continue;
+            if (!options.worker().equals(owner(ring, account.username()))) continue;
+
+            Integer gen = generations.get(key);
+            if (gen != null) {
+                // lease đang có: chỉ giành lại khi worker giữ nó đã chết (hoặc là chính worker id này ở lần chạy trước)
+                String holder = readQuietly(leases.resolve(key + "#" + gen));
+                if (holder.isEmpty()) continue; // lease vừa được tạo, chưa kịp ghi tên
+                if (!holder.equals(options.worker())
+                        && ownerAlive.computeIfAbsent(holder, w -> alive(workers.resolve(key(w))))) continue;
+            }
+            int next = gen == null ? 0 : gen + 1;
+            Path lease = leases.resolve(key + "#" + next);
+            if (createLease(lease)) {
+                if (gen != null) log.accept("♻️ Nhận lại " + account.username() + " từ worker đã dừng");
+                held.put(key, lease);
+                claimed.add(account);
+            }
+        }
+        return new Claim(claimed, remaining);
+    }
+
+    /**
+     * Tạo file lease chứa tên worker; hard link từ file tạm nên tạo-nếu-chưa-có là nguyên tử và file không bao giờ
+     * rỗng. FS không hỗ trợ hard link thì tạo thẳng (có thể bị đọc khi chưa ghi xong → được coi như đang giữ).
+     *
+     * @return false nếu worker khác đã tạo trước
+     */
+    private boolean createLease(Path lease) {
+        try {
+            Path tmp = Files.createTempFile(leases, ".lease-", ".tmp");
+            try {
+                Files.writeString(tmp, options.worker(), StandardCharsets.UTF_8);
+                Files.createLink(lease, tmp);
+            } catch (UnsupportedOperationException e) {
+                Files.writeString(lease, options.worker(), StandardCharsets.UTF_8, StandardOpenOption.CREATE_NEW,
+                        StandardOpenOption.WRITE);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+            return true;
+        } catch (FileAlreadyExistsException e) {
+            return false;
+        } catch (IOException e) {
+            System.err.println("⚠️ Không tạo được lease " + lease + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Ghi kết quả rồi đánh dấu account đã xong. Kết quả ghi trước: process chết ở giữa thì account có thể được
+     * chạy lại (journal / lịch điểm danh bỏ qua bước đã xong), báo cáo gộp giữ kết quả mới nhất.
+     */
+    private void finished(Account account, boolean ok) {
+        String key = key(account.username());
+        synchronized (this) {
+            try {
+                resultOut.write(account.username() + "|" + (ok ? "OK" : "FAIL") + "|" + options.worker() + "|"
+                        + System.currentTimeMillis());
+                resultOut.newLine();
+                resultOut.flush();
+            } catch (IOException e) {
+                System.err.println("⚠️ Không ghi được kết quả của " + account.username() + ": " + e.getMessage());
+            }
+        }
+        try {
+            Files.createFile(done.resolve(key));
+        } catch (FileAlreadyExistsException e) {
+            System.err.println("⚠️ " + account.username() + " đã được worker khác chạy xong (lease hết hạn giữa chừng?)");
+        } catch (IOException e) {
+            System.err.println("⚠️ Không đánh dấu được " + account.username() + " đã xong: " + e.getMessage());
+        }
+        // xóa lease của mình và các thế hệ cũ hơn (của worker đã dừng)
+        Path lease = held.remove(key);
+        if (lease != null) {
+            String name = lease.getFileName().toString();
+            int gen = Integer.parseInt(name.substring(name.lastIndexOf('#') + 1));
+            for (int i = gen; i >= 0; i--) {
+                try {
+                    Files.deleteIfExists(leases.resolve(key + "#" + i));
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    // ================= VÒNG HASH =================
+
+    Set<String> liveWorkers() {
+        Set<String> live = new HashSet<>();
+        live.add(options.worker());
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(workers)) {
+            for (Path p : stream) {
+                if (!p.getFileName().toString().startsWith(".") && alive(p)) live.add(URLDecoder.decode(p.getFileName().toString(), StandardCharsets.UTF_8));
+            }
+        } catch (IOException e) {
+            System.err.println("⚠️ Không đọc được thư mục worker " + workers + ": " + e.getMessage());
+        }
+        return live;
+    }
+
+    private NavigableMap<Long, String> ring(Set<String> live) {
+        NavigableMap<Long, String> ring = new TreeMap<>();
+        for (String worker : live) {
+            for (int i = 0; i < options.virtualNodes(); i++) ring.put(hash(worker + "#" + i), worker);
+        }
+        return ring;
+    }
+
+    static String owner(NavigableMap<Long, String> ring, String username) {
+        Map.Entry<Long, String> e = ring.ceilingEntry(hash(username));
+        return (e != null ? e : ring.firstEntry()).getValue();
+    }
+
+    /**
+     * 64 bit đầu của MD5: phân bố đều và giống nhau trên mọi JVM (khác String.hashCode không đủ trộn)
+     */
+    static long hash(String value) {
+        try {
+            byte[] d = MessageDigest.getInstance("MD5").digest(value.getBytes(StandardCharsets.UTF_8));
+            long h = 0;
+            for (int i = 0; i < 8; i++) h = (h << 8) | (d[i] & 0xff);
+            return h;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // ================= BÁO CÁO =================
+
+    /**
+     * Gộp kết quả mọi worker trong ngày; account có nhiều dòng (bị chạy lại) lấy dòng xong sau cùng
+     */
+    Report report() {
+        Map<String, Result> latest = new HashMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(results, "*.txt")) {
+            for (Path p : stream) {
+                try (BufferedReader br = Files.newBufferedReader(p, StandardCharsets.UTF_8)) {
+                    String line;
+                    while ((line = br.readLine()) != null) {
+                        String[] parts = line.split("\\|", 4);
+                        if (parts.length != 4) continue;
+                        try {
+                            Result r = new Result(parts[0], parts[1].equals("OK"), parts[2], Long.parseLong(parts[3]));
+                            latest.merge(r.username(), r, (a, b) -> b.finishedAt() >= a.finishedAt() ? b : a);
+                        } catch (NumberFormatException ignored) {
+                            // dòng ghi dở khi process chết
+                        }
+                    }
+                }
+            }
+        } catch (NoSuchFileException ignored) {
+            // chưa worker nào chạy hôm nay
+        } catch (IOException e) {
+            System.err.println("⚠️ Không đọc được kết quả trong " + results + ": " + e.getMessage());
+        }
+
+        int success = 0;
+        Map<String, Integer> byWorker = new TreeMap<>();
+        List<String> failedAccounts = new ArrayList<>();
+        for (Result r : latest.values()) {
+            if (r.ok()) success++;
+            else failedAccounts.add(r.username());
+            byWorker.merge(r.worker(), 1, Integer::sum);
+        }
+        failedAccounts.sort(null);
+        return new Report(success, failedAccounts.size(), byWorker, failedAccounts);
+    }
+
+    // ================= FILE =================
+
+    /**
+     * Heartbeat đổi so với lần nhìn trước → còn sống. Không đổi thì mỗi lần nhìn cách lần đếm trước ít nhất một chu kỳ
+     * tính là một nhịp bị lỡ; lỡ {@value #MISSED_BEATS} nhịp liên tiếp → đã chết. Heartbeat mới thấy lần đầu luôn được
+     * coi là còn sống (không biết nó được ghi từ bao giờ).
+     */
+    private boolean alive(Path heartbeat) {
+        String beat = readQuietly(heartbeat);
+        if (beat.isEmpty()) return false;
+
+        long now = System.nanoTime();
+        Observed o = observed.computeIfAbsent(heartbeat.getFileName().toString(), k -> new Observed());
+        synchronized (o) {
+            if (!beat.equals(o.beat)) {
+                o.beat = beat;
+                o.checkedAt = now;
+                o.missed = 0;
+                return true;
+            }
+            if (now - o.checkedAt >= TimeUnit.MILLISECONDS.toNanos(beatPeriodMs())) {
+                o.missed++;
+                o.checkedAt = now;
+            }
+            return o.missed < MISSED_BEATS;
+        }
+    }
+
+    private static Set<String> list(Path dir) {
+        Set<String> names = new HashSet<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path p : stream) names.add(p.getFileName().toString());
+        } catch (IOException e) {
+            System.err.println("⚠️ Không đọc được thư mục " + dir + ": " + e.getMessage());
+        }
+        return names;
+    }
+
+    private static String readQuietly(Path file) {
+        try {
+            return Files.readString(file, StandardCharsets.UTF_8).strip();
+        } catch (IOException e) {
+            return "";
+        }
+    }
+
+    /**
+     * Tên file an toàn cho username / worker id ('.' cũng được mã hóa để không ra "." hay "..")
+     */
+    static String key(String name) {
+        return URLEncoder.encode(name, StandardCharsets.UTF_8).replace(".", "%2E").replace("*", "%2A");
+    }
+
+    @Override
+    public void close() {
+        if (heartbeat != null) heartbeat.shutdownNow();
+        synchronized (this) {
+            if (resultOut != null) {
+                try {
+                    resultOut.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+        // không còn giữ lease nào thì rời vòng ngay, khỏi để worker khác chờ heartbeat hết hạn.
+        // join() chưa xong (vd worker id đang được process khác dùng) thì file heartbeat không phải của mình
+        if (joined && held.isEmpty()) {
+            try {
+                Files.deleteIfExists(heartbeatFile);
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
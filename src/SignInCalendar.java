@@ -0,0 +1,159 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Lịch điểm danh trong tháng của từng account (số ngày đã điểm danh, đã nhận thưởng đủ ngày chưa),
+ * cập nhật từ kết quả getSignInList / doSignin / getfullPrize để lần chạy sau khỏi gọi getSignInList.
+ * <p>
+ * Định dạng mỗi dòng: username|yyyyMM|signDay|fullPrize (UTF-8). Sang tháng mới thì dữ liệu tháng cũ không còn
+ * giá trị (bị bỏ khi đọc / ghi). Server trả "đã điểm danh" cho ngày lịch tính ra = lịch đã cũ
+ * (điểm danh ở nơi khác) → xóa, lần sau hỏi lại getSignInList.
+ */
+public class SignInCalendar {
+
+    record Entry(String username, int month, int signDay, boolean fullPrize) {
+    }
+
+    private final Path file;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private volatile boolean dirty;
+
+    public SignInCalendar(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * @return null nếu tắt (-Dmfo.calendar.file=-)
+     */
+    static SignInCalendar fromSystemProperties() {
+        String file = Config.get("mfo.calendar.file", "calendar.txt");
+        return file.equals("-") ? null : new SignInCalendar(Path.of(file));
+    }
+
+    /**
+     * Đọc file lịch, bỏ qua dòng sai định dạng và dòng của tháng khác
+     */
+    void load() {
+        entries.clear();
+        if (!Files.exists(file)) return;
+
+        int month = MfoApi.currentYearMonth();
+        try (BufferedReader br = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                String[] parts = line.split("\\|", 4);
+                if (parts.length != 4) continue;
+                try {
+                    Entry e = new Entry(parts[0], Integer.parseInt(parts[1]), Integer.parseInt(parts[2]),
+                            Boolean.parseBoolean(parts[3]));
+                    if (e.month() == month) entries.put(e.username(), e);
+                } catch (NumberFormatException ignored) {
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("⚠️ Không đọc được file lịch điểm danh " + file + ": " + e.getMessage());
+        }
+    }
+
+    // ================= ĐỌC =================
+
+    /**
+     * @return số ngày đã điểm danh trong tháng này, -1 nếu chưa biết (→ gọi getSignInList)
+     */
+    int signDay(Account account) {
+        Entry e = current(account);
+        return e == null ? -1 : e.signDay();
+    }
+
+    boolean fullPrizeDone(Account account) {
+        Entry e = current(account);
+        return e != null && e.fullPrize();
+    }
+
+    private Entry current(Account account) {
+        Entry e = entries.get(account.username());
+        return e == null || e.month() != MfoApi.currentYearMonth() ? null : e;
+    }
+
+    // ================= GHI =================
+
+    /**
+     * Kết quả getSignInList
+     */
+    void listed(Account account, int signDay) {
+        update(account, signDay, null);
+    }
+
+    /**
+     * doSignin ngày {@code dateNo} thành công
+     */
+    void signed(Account account, int dateNo) {
+        update(account, Math.min(dateNo, MfoApi.getLastDayOfMonth()), null);
+    }
+
+    void fullPrize(Account account) {
+        update(account, -1, true);
+    }
+
+    void invalidate(Account account) {
+        if (entries.remove(account.username()) != null) dirty = true;
+    }
+
+    /**
+     * @param signDay   -1 = giữ nguyên
+     * @param fullPrize null = giữ nguyên
+     */
+    private void update(Account account, int signDay, Boolean fullPrize) {
+        int month = MfoApi.currentYearMonth();
+        entries.compute(account.username(), (username, old) -> {
+            Entry base = old == null || old.month() != month ? null : old;
+            if (signDay < 0 && base == null) return old; // chưa biết số ngày thì chưa lưu được gì
+            return new Entry(username, month,
+                    signDay >= 0 ? signDay : base.signDay(),
+                    fullPrize != null ? fullPrize : base != null && base.fullPrize());
+        });
+        dirty = true;
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    /**
+     * Ghi ra file nếu có thay đổi (gọi sau mỗi lần chạy)
+     */
+    synchronized void flush() {
+        if (!dirty) return;
+        dirty = false;
+
+        int month = MfoApi.currentYearMonth();
+        try {
+            Path dir = file.toAbsolutePath().getParent();
+            Path tmp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+            try (BufferedWriter w = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                for (Entry e : entries.values()) {
+                    if (e.month() != month) continue;
+                    w.write(e.username() + "|" + e.month() + "|" + e.signDay() + "|" + e.fullPrize());
+                    w.newLine();
+                }
+            }
+
+            try {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            dirty = true;
+            System.err.println("⚠️ Không ghi được file lịch điểm danh " + file + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,388 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.zip.GZIPOutputStream;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Server giả lập mfapi chạy trong process cho 6 endpoint tool dùng (getCaptcha, doLogin, getSignInList,
+ * doSignin, getfullPrize, getTaskPrize), để đo / thử tool mà không gọi server thật:
+ * {@code java StubServer} rồi chạy app với {@code -Dmfo.baseUrl=http://127.0.0.1:8089}.
+ * <p>
+ * Giữ trạng thái điểm danh / nhận quà theo userId giống server thật. Có thể chèn độ trễ (cố định + jitter,
+ * riêng theo endpoint), lỗi HTTP và captcha sai theo tỉ lệ %, giới hạn số request / giây (vượt → HTTP 429).
+ * Nén gzip response JSON từ {@code mfo.stub.gzipMinBytes} byte khi client gửi {@code Accept-Encoding: gzip}
+ * (getSignInList trả kèm danh sách cả tháng như server thật nên là body lớn nhất).
+ * Response được trả từ scheduler nên độ trễ giả lập không chiếm thread xử lý.
+ */
+public class StubServer implements AutoCloseable {
+
+    record Options(int port, int threads, long latencyMs, long jitterMs, int errorPercent, int errorStatus,
+                   int ratePerSecond, int wrongCaptchaPercent, int gzipMinBytes) {
+
+        static Options fromSystemProperties() {
+            return new Options(
+                    Config.getInt("mfo.stub.port", 8089),
+                    Math.max(1, Config.getInt("mfo.stub.threads", 4)),
+                    Math.max(0, Config.getLong("mfo.stub.latencyMs", 0)),
+                    Math.max(0, Config.getLong("mfo.stub.jitterMs", 0)),
+                    Config.getInt("mfo.stub.errorPercent", 0),
+                    Config.getInt("mfo.stub.errorStatus", 503),
+                    Config.getInt("mfo.stub.ratePerSecond", 0),
+                    Config.getInt("mfo.stub.wrongCaptchaPercent", 0),
+                    Config.getInt("mfo.stub.gzipMinBytes", 256));
+        }
+
+        Options withPort(int port) {
+            return new Options(port, threads, latencyMs, jitterMs, errorPercent, errorStatus, ratePerSecond,
+                    wrongCaptchaPercent, gzipMinBytes);
+        }
+
+        /**
+         * Độ trễ riêng theo endpoint: -Dmfo.stub.latencyMs.&lt;tên endpoint&gt;, vd mfo.stub.latencyMs.doLogin
+         */
+        long latencyFor(String endpoint) {
+            return Math.max(0, Config.getLong("mfo.stub.latencyMs." + endpoint, latencyMs));
+        }
+    }
+
+    /**
+     * Số request đã nhận, số lỗi đã chèn, số request bị từ chối vì vượt giới hạn, số byte body đã gửi
+     */
+    record Stats(long requests, long errors, long throttled, long bytesOut) {
+    }
+
+    private record Response(int status, String contentType, byte[] body, String cookie) {
+
+        static Response json(String body) {
+            return new Response(200, "application/json;charset=UTF-8", body.getBytes(StandardCharsets.UTF_8), null);
+        }
+
+        static Response status(int status) {
+            return new Response(status, "text/plain", new byte[0], null);
+        }
+    }
+
+    /**
+     * Trạng thái của một user trong tháng
+     */
+    private static final class User {
+        final String userId;
+        int signDay;
+        boolean fullPrize;
+        final AtomicBoolean task = new AtomicBoolean();
+
+        User(String userId) {
+            this.userId = userId;
+        }
+    }
+
+    private static final int THROTTLED = 429;
+
+    static {
+        // header và body response được ghi thành 2 lần: để Nagle bật thì mỗi request chờ thêm ~40ms (delayed ACK)
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private static final Pattern USERNAME = field("username");
+    private static final Pattern PASSWORD = field("password");
+    private static final Pattern CODE = field("code");
+    private static final Pattern USER_ID = field("userId");
+    private static final Pattern DATE_NO = field("dateNo");
+
+    private final Options options;
+    private final HttpServer server;
+    private final ExecutorService handlers;
+    private final ScheduledExecutorService replies;
+    private final byte[] captcha = renderCaptcha("1234");
+    private final Map<String, Long> latencies = new ConcurrentHashMap<>();
+
+    private final Map<String, User> byUsername = new ConcurrentHashMap<>();
+    private final Map<String, User> byUserId = new ConcurrentHashMap<>();
+    private final AtomicInteger nextUserId = new AtomicInteger(100_000);
+    private final AtomicInteger nextCookie = new AtomicInteger();
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder throttled = new LongAdder();
+    private final LongAdder bytesOut = new LongAdder();
+    private long windowSecond;
+    private int windowCount;
+
+    public StubServer(Options options) throws IOException {
+        this.options = options;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", options.port()), 0);
+        this.handlers = Executors.newFixedThreadPool(options.threads(), ApiClient.daemonThreads("mfo-stub-"));
+        this.replies = Executors.newScheduledThreadPool(2, ApiClient.daemonThreads("mfo-stub-reply-"));
+        server.setExecutor(handlers);
+        server.createContext("/webapi/", this::handle);
+    }
+
+    public static void main(String[] args) throws IOException {
+        StubServer stub = new StubServer(Options.fromSystemProperties());
+        stub.start();
+        System.out.println("🧪 Stub mfapi đang chạy tại " + stub.baseUrl() + " (chạy app với -Dmfo.baseUrl=" + stub.baseUrl() + ")");
+    }
+
+    void start() {
+        server.start();
+    }
+
+    String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    Stats stats() {
+        return new Stats(requests.sum(), errors.sum(), throttled.sum(), bytesOut.sum());
+    }
+
+    /**
+     * Xóa toàn bộ user và bộ đếm (giữa các lượt load test)
+     */
+    void reset() {
+        byUsername.clear();
+        byUserId.clear();
+        requests.reset();
+        errors.reset();
+        throttled.reset();
+        bytesOut.reset();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        replies.shutdownNow();
+        handlers.shutdownNow();
+    }
+
+    // ================= XỬ LÝ REQUEST =================
+    private void handle(HttpExchange ex) {
+        requests.increment();
+        String path = ex.getRequestURI().getPath();
+        String endpoint = path.substring(path.lastIndexOf('/') + 1);
+
+        Response response;
+        try {
+            String body = new String(ex.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            response = respondOrFail(endpoint, body);
+        } catch (IOException e) {
+            ex.close();
+            return;
+        }
+
+        long delay = latencies.computeIfAbsent(endpoint, options::latencyFor);
+        if (options.jitterMs() > 0) delay += ThreadLocalRandom.current().nextLong(options.jitterMs() + 1);
+        if (delay > 0) replies.schedule(() -> send(ex, response), delay, TimeUnit.MILLISECONDS);
+        else send(ex, response);
+    }
+
+    /**
+     * Lỗi không lường trước khi xử lý vẫn được trả lời (500), để client không treo tới hết timeout
+     */
+    private Response respondOrFail(String endpoint, String body) {
+        try {
+            return respond(endpoint, body);
+        } catch (RuntimeException e) {
+            System.err.println("⚠️ Stub lỗi khi xử lý " + endpoint + ": " + e);
+            return Response.status(500);
+        }
+    }
+
+    private Response respond(String endpoint, String body) {
+        if (throttled()) {
+            throttled.increment();
+            return Response.status(THROTTLED);
+        }
+        if (options.errorPercent() > 0 && ThreadLocalRandom.current().nextInt(100) < options.errorPercent()) {
+            errors.increment();
+            return Response.status(options.errorStatus());
+        }
+
+        return switch (endpoint) {
+            case "getCaptcha" -> new Response(200, "image/png", captcha,
+                    "JSESSIONID=stub-" + nextCookie.incrementAndGet() + "; Path=/");
+            case "doLogin" -> login(body);
+            case "getSignInList" -> withUser(body, u -> {
+                synchronized (u) {
+                    return Response.json(signInList(u.signDay));
+                }
+            });
+            case "doSignin" -> withUser(body, u -> signin(u, body));
+            case "getfullPrize" -> withUser(body, u -> {
+                synchronized (u) {
+                    boolean first = !u.fullPrize;
+                    u.fullPrize = true;
+                    return state(first ? ApiState.OK : ApiState.PRIZE_CLAIMED);
+                }
+            });
+            case "getTaskPrize" -> withUser(body, u -> state(u.task.compareAndSet(false, true) ? ApiState.OK : ApiState.PRIZE_CLAIMED));
+            default -> Response.status(404);
+        };
+    }
+
+    private Response login(String body) {
+        String code = value(CODE, body);
+        if (code == null || code.isEmpty() || (options.wrongCaptchaPercent() > 0
+                && ThreadLocalRandom.current().nextInt(100) < options.wrongCaptchaPercent())) {
+            return state(ApiState.WRONG_CAPTCHA);
+        }
+        String username = value(USERNAME, body);
+        String password = value(PASSWORD, body);
+        if (username == null || password == null || password.isEmpty()) return state(ApiState.FAILED);
+
+        User user = byUsername.computeIfAbsent(username, u -> {
+            User created = new User(String.valueOf(nextUserId.incrementAndGet()));
+            byUserId.put(created.userId, created);
+            return created;
+        });
+        return Response.json("{\"state\":200,\"data\":{\"token\":\"stub-" + user.userId + "\",\"userId\":" + user.userId + "}}");
+    }
+
+    private Response signin(User user, String body) {
+        String dateNo = value(DATE_NO, body);
+        if (dateNo == null) return state(ApiState.FAILED);
+        int day;
+        try {
+            day = Integer.parseInt(dateNo);
+        } catch (NumberFormatException e) {
+            return state(ApiState.FAILED);
+        }
+        synchronized (user) {
+            if (day <= user.signDay) return state(ApiState.ALREADY_SIGNED_2);
+            if (day > MfoApi.getTodayDateNo()) return state(ApiState.FAILED); // chưa tới ngày
+            user.signDay++;
+            return state(ApiState.OK);
+        }
+    }
+
+    private Response withUser(String body, Function<User, Response> action) {
+        String userId = value(USER_ID, body);
+        User user = userId == null ? null : byUserId.get(userId);
+        return user == null ? state(ApiState.FAILED) : action.apply(user);
+    }
+
+    /**
+     * Giới hạn theo cửa sổ 1 giây cố định
+     */
+    private synchronized boolean throttled() {
+        if (options.ratePerSecond() <= 0) return false;
+        long second = System.nanoTime() / 1_000_000_000L;
+        if (second != windowSecond) {
+            windowSecond = second;
+            windowCount = 0;
+        }
+        return ++windowCount > options.ratePerSecond();
+    }
+
+    private void send(HttpExchange ex, Response response) {
+        try {
+            if (response.cookie() != null) ex.getResponseHeaders().add("Set-Cookie", response.cookie());
+            // cửa sổ giới hạn là 1 giây
+            if (response.status() == THROTTLED) ex.getResponseHeaders().add("Retry-After", "1");
+            ex.getResponseHeaders().add("Content-Type", response.contentType());
+            byte[] body = response.body();
+            if (acceptsGzip(ex) && response.contentType().startsWith("application/json")
+                    && options.gzipMinBytes() >= 0 && body.length >= options.gzipMinBytes()) {
+                body = gzip(body);
+                ex.getResponseHeaders().add("Content-Encoding", "gzip");
+            }
+            int length = body.length;
+            bytesOut.add(length);
+            ex.sendResponseHeaders(response.status(), length == 0 ? -1 : length);
+            if (length > 0) ex.getResponseBody().write(body);
+        } catch (IOException ignored) {
+            // client đã hủy request (timeout / cancel)
+        } finally {
+            ex.close();
+        }
+    }
+
+    // ================= HELPER =================
+    private static boolean acceptsGzip(HttpExchange ex) {
+        String accept = ex.getRequestHeaders().getFirst("Accept-Encoding");
+        return accept != null && accept.toLowerCase().contains("gzip");
+    }
+
+    private static byte[] gzip(byte[] body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 4 + 32);
+        try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+            gz.write(body);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Danh sách điểm danh cả tháng: mỗi ngày một object kèm phần thưởng, signDay nằm sau list
+     */
+    private static String signInList(int signDay) {
+        int days = MfoApi.getLastDayOfMonth();
+        StringBuilder sb = new StringBuilder(160 * days + 128)
+                .append("{\"state\":200,\"msg\":\"success\",\"data\":{\"activityName\":\"signin\",\"month\":\"")
+                .append(MfoApi.currentYearMonth()).append("\",\"list\":[");
+        for (int d = 1; d <= days; d++) {
+            if (d > 1) sb.append(',');
+            sb.append("{\"dateNo\":").append(d)
+                    .append(",\"status\":").append(d <= signDay ? 1 : 0)
+                    .append(",\"signInType\":1")
+                    .append(",\"prize\":{\"prizeType\":\"diamond\",\"prizeNum\":").append(d % 7 == 0 ? 50 : 10)
+                    .append(",\"icon\":\"https://img.818long.com/signin/diamond.png\"}}");
+        }
+        return sb.append("],\"fullPrize\":{\"prizeType\":\"diamond\",\"prizeNum\":300,\"received\":false},")
+                .append("\"signDay\":").append(signDay).append("},\"time\":").append(System.currentTimeMillis())
+                .append('}').toString();
+    }
+
+    private static Response state(int state) {
+        return Response.json("{\"state\":" + state + "}");
+    }
+
+    private static Pattern field(String key) {
+        return Pattern.compile("\"" + key + "\"\\s*:\\s*(?:\"((?:[^\"\\\\]|\\\\.)*)\"|(-?\\d+))");
+    }
+
+    private static String value(Pattern pattern, String body) {
+        Matcher m = pattern.matcher(body);
+        if (!m.find()) return null;
+        return m.group(1) != null ? m.group(1) : m.group(2);
+    }
+
+    private static byte[] renderCaptcha(String text) {
+        BufferedImage image = new BufferedImage(100, 40, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, image.getWidth(), image.getHeight());
+        g.setColor(Color.DARK_GRAY);
+        g.setFont(new Font(Font.MONOSPACED, Font.BOLD, 24));
+        g.drawString(text, 18, 28);
+        g.dispose();
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ImageIO.write(image, "png", out);
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.net.CookieHandler;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Lưu token đăng nhập theo username ra file để lần chạy sau bỏ qua bước login / captcha.
+ * Định dạng mỗi dòng: username|userId|token|expiresAtMillis (UTF-8).
+ * File được ghi nguyên khối (ghi file tạm rồi move) nên không bao giờ bị ghi dở.
+ */
+public class TokenStore {
+
+    record Entry(String username, String userId, String token, long expiresAt) {
+    }
+
+    private final Path file;
+    private final Duration ttl;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private volatile boolean dirty;
+
+    public TokenStore(Path file, Duration ttl) {
+        this.file = file;
+        this.ttl = ttl;
+    }
+
+    static TokenStore fromSystemProperties() {
+        return new TokenStore(
+                Path.of(Config.get("mfo.session.file", "sessions.txt")),
+                Duration.ofHours(Config.getLong("mfo.session.ttlHours", 24)));
+    }
+
+    /**
+     * Cùng file nhưng hạn dùng ít nhất {@code min} (vd daemon chạy cách nhau một ngày cộng khoảng giãn)
+     */
+    TokenStore withMinTtl(Duration min) {
+        return ttl.compareTo(min) >= 0 ? this : new TokenStore(file, min);
+    }
+
+    /**
+     * Đọc file session, bỏ qua dòng sai định dạng và session đã hết hạn
+     */
+    void load() {
+        entries.clear();
+        if (!Files.exists(file)) return;
+
+        long now = System.currentTimeMillis();
+        try (BufferedReader br = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                String[] parts = line.split("\\|", 4);
+                if (parts.length != 4) continue;
+                try {
+                    Entry e = new Entry(parts[0], parts[1], parts[2], Long.parseLong(parts[3]));
+                    if (e.expiresAt() > now) entries.put(e.username(), e);
+                } catch (NumberFormatException ignored) {
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("⚠️ Không đọc được file session " + file + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return session đã lưu của account (kèm cookie jar mới), null nếu chưa có hoặc đã hết hạn
+     */
+    Session get(Account account, CookieHandler cookies) {
+        Entry e = entries.get(account.username());
+        if (e == null) return null;
+        if (e.expiresAt() <= System.currentTimeMillis()) {
+            remove(account.username());
+            return null;
+        }
+        return new Session(account, e.token(), e.userId(), cookies);
+    }
+
+    /**
+     * @return true nếu account còn session đã lưu chưa hết hạn (không cần captcha)
+     */
+    boolean has(String username) {
+        Entry e = entries.get(username);
+        return e != null && e.expiresAt() > System.currentTimeMillis();
+    }
+
+    /**
+     * Lưu session, hạn dùng tính từ bây giờ (gọi cả khi login mới lẫn khi server vừa nhận session đã lưu)
+     */
+    void put(Session session) {
+        long expiresAt = System.currentTimeMillis() + ttl.toMillis();
+        entries.put(session.account().username(),
+                new Entry(session.account().username(), session.userId(), session.token(), expiresAt));
+        dirty = true;
+    }
+
+    void remove(String username) {
+        if (entries.remove(username) != null) dirty = true;
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    /**
+     * Ghi ra file nếu có thay đổi (gọi sau mỗi lần chạy)
+     */
+    synchronized void flush() {
+        if (!dirty) return;
+        dirty = false;
+
+        try {
+            Path dir = file.toAbsolutePath().getParent();
+            Path tmp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+            // ghi / move lỗi thì không để lại file tạm chứa token
+            try {
+                try {
+                    Files.setPosixFilePermissions(tmp, PosixFilePermissions.fromString("rw-------"));
+                } catch (UnsupportedOperationException ignored) {
+                }
+
+                try (BufferedWriter w = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                    for (Entry e : entries.values()) {
+                        w.write(e.username() + "|" + e.userId() + "|" + e.token() + "|" + e.expiresAt());
+                        w.newLine();
+                    }
+                }
+
+                try {
+                    Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        } catch (IOException e) {
+            dirty = true;
+            System.err.println("⚠️ Không ghi được file session " + file + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,170 @@
+import javax.swing.*;
+import javax.swing.text.BadLocationException;
+import java.awt.*;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Gom mọi cập nhật UI (log, status, progress chung, progress từng account) và vẽ lại theo nhịp cố định
+ * bằng một Timer duy nhất trên EDT, thay vì mỗi dòng log / mỗi bước một invokeLater hay một Timer riêng.
+ * <p>
+ * Các hàm ghi gọi được từ mọi thread. Log chỉ giữ tối đa N dòng cuối (dòng cũ bị cắt khỏi document).
+ */
+public class UiRenderer {
+
+    /**
+     * Trạng thái progress (đích) của một thanh: giá trị 0-100, chữ hiển thị, màu
+     */
+    record Progress(int value, String text, Color color) {
+    }
+
+    /**
+     * Progress đang vẽ của một account: giá trị hiện tại chạy dần tới đích
+     */
+    static class Row {
+        volatile Progress target;
+        int current;
+
+        Row(Progress target) {
+            this.target = target;
+        }
+    }
+
+    private final JTextArea logArea;
+    private final JLabel statusLabel;
+    private final JProgressBar progressBar;
+    private final JList<Account> accountList;
+    private final int maxLogLines;
+    private final Timer timer;
+
+    private final ConcurrentLinkedQueue<String> pendingLogs = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingLogCount = new AtomicInteger();
+    private volatile String pendingStatus;
+    private volatile Progress overall;
+    private int overallCurrent;
+    private final Map<String, Row> rows = new ConcurrentHashMap<>();
+    private volatile boolean rowsDirty;
+
+    public UiRenderer(JTextArea logArea, JLabel statusLabel, JProgressBar progressBar, JList<Account> accountList) {
+        this.logArea = logArea;
+        this.statusLabel = statusLabel;
+        this.progressBar = progressBar;
+        this.accountList = accountList;
+        this.maxLogLines = Math.max(10, Config.getInt("mfo.ui.maxLogLines", 500));
+
+        int fps = Math.max(1, Config.getInt("mfo.ui.fps", 30));
+        this.timer = new Timer(1000 / fps, e -> renderFrame());
+        this.timer.setCoalesce(true);
+    }
+
+    void start() {
+        timer.start();
+    }
+
+    // ================= GHI (mọi thread) =================
+    void log(String line) {
+        pendingLogs.add(line);
+        // giữ hàng đợi không vượt quá số dòng hiển thị được
+        if (pendingLogCount.incrementAndGet() > maxLogLines && pendingLogs.poll() != null) {
+            pendingLogCount.decrementAndGet();
+        }
+    }
+
+    void status(String text) {
+        pendingStatus = text;
+    }
+
+    /**
+     * Progress chung (thanh trên cùng)
+     */
+    void progress(Progress p) {
+        overall = p;
+    }
+
+    /**
+     * Progress của một account (vẽ trên dòng account trong danh sách)
+     */
+    void accountProgress(Account account, Progress p) {
+        Row row = rows.putIfAbsent(account.username(), new Row(p));
+        if (row != null) row.target = p;
+        rowsDirty = true;
+    }
+
+    void clearAccountProgress() {
+        rows.clear();
+        rowsDirty = true;
+    }
+
+    /**
+     * Progress của account để cell renderer vẽ, null nếu account chưa chạy
+     */
+    Row row(Account account) {
+        return rows.get(account.username());
+    }
+
+    // ================= VẼ (EDT) =================
+    private void renderFrame() {
+        drainLogs();
+
+        String status = pendingStatus;
+        if (status != null) {
+            pendingStatus = null;
+            statusLabel.setText(status);
+        }
+
+        Progress p = overall;
+        if (p != null) {
+            progressBar.setString(p.text());
+            progressBar.setForeground(p.color());
+            overallCurrent = step(overallCurrent, p.value());
+            progressBar.setValue(overallCurrent);
+        }
+
+        boolean rowsChanged = rowsDirty;
+        rowsDirty = false;
+        for (Row row : rows.values()) {
+            int next = step(row.current, row.target.value());
+            if (next != row.current) rowsChanged = true;
+            row.current = next;
+        }
+        if (rowsChanged) accountList.repaint();
+    }
+
+    private void drainLogs() {
+        if (pendingLogs.isEmpty()) return;
+
+        ArrayDeque<String> batch = new ArrayDeque<>();
+        String line;
+        while ((line = pendingLogs.poll()) != null) {
+            pendingLogCount.decrementAndGet();
+            batch.add(line);
+            if (batch.size() > maxLogLines) batch.poll();
+        }
+
+        StringBuilder sb = new StringBuilder();
+        for (String l : batch) sb.append(l).append('\n');
+        logArea.append(sb.toString());
+
+        // cắt bớt dòng cũ: document chỉ giữ maxLogLines dòng cuối
+        int excess = logArea.getLineCount() - 1 - maxLogLines;
+        if (excess > 0) {
+            try {
+                logArea.replaceRange("", 0, logArea.getLineEndOffset(excess - 1));
+            } catch (BadLocationException ignored) {
+            }
+        }
+        logArea.setCaretPosition(logArea.getDocument().getLength());
+    }
+
+    /**
+     * Chạy dần tới đích, nhanh hơn khi còn xa (ease-out)
+     */
+    private static int step(int current, int target) {
+        if (current == target) return current;
+        int delta = Math.max(1, Math.abs(target - current) / 4);
+        return current < target ? Math.min(target, current + delta) : Math.max(target, current - delta);
+    }
+}
@@ -0,0 +1,190 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.net.CookieManager;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AccountWorkerTest {
+
+    private static final Account ACCOUNT = new Account("user", "p");
+
+    @TempDir
+    Path dir;
+
+    private StubServer stub;
+    private ApiClient api;
+
+    @AfterEach
+    void stop() {
+        System.clearProperty("mfo.stub.errorPercent");
+        System.clearProperty("mfo.retry.maxAttempts");
+        if (api != null) api.shutdown();
+        if (stub != null) stub.close();
+    }
+
+    @Test
+    void serverErrorKeepsSavedSession() throws Exception {
+        System.setProperty("mfo.stub.errorPercent", "100");
+        System.setProperty("mfo.retry.maxAttempts", "1");
+        start();
+        TokenStore tokens = savedSession("1");
+
+        assertFalse(worker(tokens).run(noCaptcha(), 1));
+        assertTrue(tokens.has(ACCOUNT.username()));
+
+        ExecutorService captcha = Executors.newCachedThreadPool();
+        try {
+            assertFalse(worker(tokens).runAsync(noCaptcha(), 1, captcha, 5_000).get(5, TimeUnit.SECONDS));
+        } finally {
+            captcha.shutdownNow();
+        }
+        assertTrue(tokens.has(ACCOUNT.username()));
+    }
+
+    @Test
+    void rejectedTokenIsDropped() throws Exception {
+        start();
+        // userId mà server không biết → state lỗi rõ ràng
+        TokenStore tokens = savedSession("999");
+        assertFalse(worker(tokens).run(noCaptcha(), 1));
+        assertFalse(tokens.has(ACCOUNT.username()));
+
+        tokens = savedSession("999");
+        ExecutorService captcha = Executors.newCachedThreadPool();
+        try {
+            assertFalse(worker(tokens).runAsync(noCaptcha(), 1, captcha, 5_000).get(5, TimeUnit.SECONDS));
+        } finally {
+            captcha.shutdownNow();
+        }
+        assertFalse(tokens.has(ACCOUNT.username()));
+    }
+
+    @Test
+    void failedTaskIsNotJournaled() throws Exception {
+        start();
+        TokenStore tokens = savedSession("999");
+        RunJournal journal = journal("a.log");
+        try {
+            // đã điểm danh theo journal → đi thẳng tới task, server không biết userId
+            journal.signed(ACCOUNT, 1);
+            worker(tokens, journal).run(noCaptcha(), 1);
+            assertFalse(journal.finished(ACCOUNT));
+        } finally {
+            journal.close();
+        }
+    }
+
+    @Test
+    void claimedTaskIsJournaled() throws Exception {
+        start();
+        TokenStore tokens = new TokenStore(dir.resolve("sessions.txt"), Duration.ofHours(1));
+        RunJournal first = journal("a.log");
+        try {
+            assertTrue(worker(tokens, first).run((account, fetchImage) -> "1234", 1));
+            assertTrue(first.finished(ACCOUNT));
+        } finally {
+            first.close();
+        }
+
+        // quà đã nhận ở lần trước → server báo đã nhận, vẫn coi là xong trong ngày
+        RunJournal second = journal("b.log");
+        try {
+            second.signed(ACCOUNT, 1);
+            assertTrue(worker(tokens, second).run(noCaptcha(), 1));
+            assertTrue(second.finished(ACCOUNT));
+        } finally {
+            second.close();
+        }
+    }
+
+    @Test
+    void staleCalendarFallsBackToSignInList() throws Exception {
+        start();
+        TokenStore tokens = new TokenStore(dir.resolve("sessions.txt"), Duration.ofHours(1));
+        // lần đầu: điểm danh ngày 1 trên server
+        assertTrue(worker(tokens).run((account, fetchImage) -> "1234", 1));
+
+        for (boolean async : new boolean[]{false, true}) {
+            // lịch đã lưu còn nói chưa điểm danh ngày nào → server trả "đã điểm danh" cho ngày 1
+            SignInCalendar calendar = new SignInCalendar(dir.resolve("calendar-" + async + ".txt"));
+            calendar.listed(ACCOUNT, async ? 1 : 0);
+            RunJournal journal = journal("journal-" + async + ".log");
+            try {
+                AccountWorker worker = new AccountWorker(ACCOUNT, new MfoApi(api, QUIET), new CookieManager(), QUIET,
+                        tokens, journal, calendar);
+                if (async) {
+                    ExecutorService captcha = Executors.newCachedThreadPool();
+                    try {
+                        worker.runAsync(noCaptcha(), 1, captcha, 5_000).get(5, TimeUnit.SECONDS);
+                    } finally {
+                        captcha.shutdownNow();
+                    }
+                } else {
+                    worker.run(noCaptcha(), 1);
+                }
+                // không được ghi ngày cũ vào journal; hôm nay >= ngày tiếp theo thì phải điểm danh thật ngày đó
+                int expected = async ? 3 : 2;
+                assertNotEquals(expected - 1, journal.signedDate(ACCOUNT), "async=" + async);
+                if (MfoApi.getTodayDateNo() >= expected) {
+                    assertEquals(expected, journal.signedDate(ACCOUNT), "async=" + async);
+                }
+            } finally {
+                journal.close();
+            }
+        }
+    }
+
+    private RunJournal journal(String name) {
+        RunJournal journal = new RunJournal(dir.resolve(name), 1000);
+        journal.open();
+        return journal;
+    }
+
+    private void start() throws Exception {
+        stub = new StubServer(StubServer.Options.fromSystemProperties().withPort(0));
+        stub.start();
+        api = new ApiClient(ApiClient.Options.fromSystemProperties().withBaseUrl(stub.baseUrl()));
+    }
+
+    private TokenStore savedSession(String userId) {
+        TokenStore tokens = new TokenStore(dir.resolve("sessions.txt"), Duration.ofHours(1));
+        tokens.put(new Session(ACCOUNT, "tk", userId, null));
+        return tokens;
+    }
+
+    private AccountWorker worker(TokenStore tokens) {
+        return worker(tokens, null);
+    }
+
+    private AccountWorker worker(TokenStore tokens, RunJournal journal) {
+        return new AccountWorker(ACCOUNT, new MfoApi(api, QUIET), new CookieManager(), QUIET, tokens, journal, null);
+    }
+
+    private static CaptchaSolver noCaptcha() {
+        return (account, fetchImage) -> null;
+    }
+
+    private static final RunListener QUIET = new RunListener() {
+        @Override
+        public void log(Account account, String message) {
+        }
+
+        @Override
+        public void status(Account account, String message) {
+        }
+
+        @Override
+        public void step(Account account, Step step) {
+        }
+    };
+}
@@ -0,0 +1,88 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BatchRunnerTest {
+
+    private StubServer stub;
+    private ApiClient api;
+
+    @BeforeEach
+    void start() throws Exception {
+        System.setProperty("mfo.rate.global", "0");
+        System.setProperty("mfo.rate.doLogin", "0");
+        stub = new StubServer(StubServer.Options.fromSystemProperties().withPort(0));
+        stub.start();
+        api = new ApiClient(ApiClient.Options.fromSystemProperties().withBaseUrl(stub.baseUrl()));
+    }
+
+    @AfterEach
+    void stop() {
+        System.clearProperty("mfo.rate.global");
+        System.clearProperty("mfo.rate.doLogin");
+        api.shutdown();
+        stub.close();
+    }
+
+    @Test
+    void filteredAccountsAreReadLazily() throws Exception {
+        List<Account> accounts = IntStream.range(0, 8).mapToObj(i -> new Account("u" + i, "p")).toList();
+        AtomicInteger read = new AtomicInteger();
+        Set<String> ran = ConcurrentHashMap.newKeySet();
+        Iterable<Account> even = () -> accounts.stream()
+                .peek(account -> read.incrementAndGet())
+                .filter(account -> Integer.parseInt(account.username().substring(1)) % 2 == 0)
+                .iterator();
+
+        for (BatchRunner.Mode mode : BatchRunner.Mode.values()) {
+            read.set(0);
+            ran.clear();
+            BatchRunner.Summary summary = runner(mode).runAll(even, 4, (account, ok, done, total) -> {
+                ran.add(account.username());
+                assertEquals(4, total);
+            });
+            assertEquals(4, summary.total(), mode.toString());
+            assertEquals(4, summary.success(), mode.toString());
+            assertEquals(4, ran.size(), mode.toString());
+            assertEquals(accounts.size(), read.get(), mode.toString());
+        }
+    }
+
+    @Test
+    void summaryCountsAccountsActuallyStarted() throws Exception {
+        List<Account> accounts = List.of(new Account("a", "p"), new Account("b", "p"));
+        BatchRunner.Summary summary = runner(BatchRunner.Mode.POOL).runAll(accounts, 5, null);
+        assertEquals(2, summary.total());
+        assertEquals(0, summary.failed());
+    }
+
+    private BatchRunner runner(BatchRunner.Mode mode) {
+        RunListener quiet = new RunListener() {
+            @Override
+            public void log(Account account, String message) {
+            }
+
+            @Override
+            public void status(Account account, String message) {
+            }
+
+            @Override
+            public void step(Account account, Step step) {
+            }
+        };
+        CaptchaSolver solver = (account, fetchImage) -> {
+            fetchImage.call();
+            return "1234";
+        };
+        BatchRunner.Options options = BatchRunner.Options.fromSystemProperties().withParallelism(4).withMode(mode);
+        return new BatchRunner(api, solver, quiet, null, null, null, options);
+    }
+}
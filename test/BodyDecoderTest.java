@@ -0,0 +1,275 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BodyDecoderTest {
+
+    private static final int FHCRC = 2;
+    private static final int FEXTRA = 4;
+    private static final int FNAME = 8;
+    private static final int FCOMMENT = 16;
+
+    private static final byte[] JSON = "{\"state\":200,\"data\":{\"token\":\"tk-1\",\"userId\":42,\"note\":\"Điểm danh 😀\"}}"
+            .getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    void plainBody() throws Exception {
+        assertArrayEquals(JSON, decode(false, JSON));
+        ResponseParser p = decodeJson(false, JSON);
+        assertEquals(200, p.state());
+        assertEquals("tk-1", p.token());
+    }
+
+    @Test
+    void plainDirectBuffers() throws Exception {
+        ByteBuffer direct = ByteBuffer.allocateDirect(JSON.length);
+        direct.put(JSON).flip();
+        assertArrayEquals(JSON, run(false, List.of(List.of(direct))));
+    }
+
+    @Test
+    void gzipEveryHeaderFlag() throws Exception {
+        int[] flagSets = {0, FEXTRA, FNAME, FCOMMENT, FHCRC, FEXTRA | FNAME | FCOMMENT | FHCRC};
+        for (int flags : flagSets) {
+            assertArrayEquals(JSON, decode(true, gzip(JSON, flags)), "flags=" + flags);
+        }
+    }
+
+    @Test
+    void gzipEmptyExtraField() throws Exception {
+        byte[] body = gzip(JSON, FEXTRA, new byte[0]);
+        assertArrayEquals(JSON, decode(true, body));
+    }
+
+    @Test
+    void gzipSplitAtEveryBoundary() throws Exception {
+        byte[] body = gzip(JSON, FEXTRA | FNAME | FCOMMENT | FHCRC);
+        for (int split = 0; split <= body.length; split++) {
+            List<List<ByteBuffer>> chunks = List.of(
+                    List.of(ByteBuffer.wrap(body, 0, split).slice()),
+                    List.of(ByteBuffer.wrap(body, split, body.length - split).slice()));
+            assertArrayEquals(JSON, run(true, chunks), "@" + split);
+        }
+
+        List<List<ByteBuffer>> bytes = new ArrayList<>();
+        for (byte b : body) bytes.add(List.of(ByteBuffer.wrap(new byte[]{b})));
+        assertArrayEquals(JSON, run(true, bytes), "từng byte");
+    }
+
+    @Test
+    void gzipLargerThanScratchBuffer() throws Exception {
+        byte[] big = new byte[100_000];
+        for (int i = 0; i < big.length; i++) big[i] = (byte) ('a' + i * 31 % 26);
+        assertArrayEquals(big, decode(true, gzip(big, 0)));
+    }
+
+    @Test
+    void gzipTrailingBytesIgnored() throws Exception {
+        byte[] body = gzip(JSON, 0);
+        byte[] padded = Arrays.copyOf(body, body.length + 4);
+        assertArrayEquals(JSON, decode(true, padded));
+    }
+
+    @Test
+    void gzipBadCrc() {
+        byte[] body = gzip(JSON, 0);
+        body[body.length - 8] ^= 1;
+        assertFails(body, "CRC");
+    }
+
+    @Test
+    void gzipBadLength() {
+        byte[] body = gzip(JSON, 0);
+        body[body.length - 4] ^= 1;
+        assertFails(body, "CRC");
+    }
+
+    @Test
+    void gzipBadMagic() {
+        byte[] body = gzip(JSON, 0);
+        body[1] = 0;
+        assertFails(body, "gzip");
+    }
+
+    @Test
+    void gzipCorruptDeflate() {
+        byte[] body = gzip(JSON, 0);
+        // khối deflate kiểu 3 (không hợp lệ)
+        body[10] = (byte) 0xff;
+        assertFails(body, "hỏng");
+    }
+
+    @Test
+    void gzipTruncatedAnywhere() {
+        byte[] body = gzip(JSON, FEXTRA | FNAME | FCOMMENT | FHCRC);
+        for (int len = 1; len < body.length; len++) {
+            assertFails(Arrays.copyOf(body, len), "cắt");
+        }
+    }
+
+    @Test
+    void emptyBodyNoContent() throws Exception {
+        assertArrayEquals(new byte[0], decode(true, new byte[0]));
+        assertArrayEquals(new byte[0], run(true, List.of()));
+        assertEquals(ApiState.NONE, decodeJson(true, new byte[0]).state());
+    }
+
+    @Test
+    void upstreamErrorFailsBody() {
+        BodyDecoder<byte[]> decoder = decoder(true);
+        Subscription subscription = new Subscription();
+        decoder.onSubscribe(subscription);
+        decoder.onError(new IOException("reset"));
+        ExecutionException e = assertThrows(ExecutionException.class, () -> body(decoder));
+        assertEquals("reset", e.getCause().getMessage());
+    }
+
+    @Test
+    void errorCancelsSubscriptionAndIgnoresRest() {
+        byte[] body = gzip(JSON, 0);
+        body[0] = 0;
+        BodyDecoder<byte[]> decoder = decoder(true);
+        Subscription subscription = new Subscription();
+        decoder.onSubscribe(subscription);
+        decoder.onNext(List.of(ByteBuffer.wrap(body)));
+        assertTrue(subscription.cancelled);
+        decoder.onNext(List.of(ByteBuffer.wrap(body)));
+        decoder.onComplete();
+        assertThrows(ExecutionException.class, () -> body(decoder));
+    }
+
+    // ================= HỖ TRỢ =================
+
+    private static void assertFails(byte[] body, String message) {
+        ExecutionException e = assertThrows(ExecutionException.class, () -> decode(true, body), message);
+        assertInstanceOf(IOException.class, e.getCause());
+        assertTrue(e.getCause().getMessage().contains(message), e.getCause().getMessage());
+    }
+
+    private static byte[] decode(boolean gzip, byte[] body) throws Exception {
+        return run(gzip, List.of(List.of(ByteBuffer.wrap(body))));
+    }
+
+    private static ResponseParser decodeJson(boolean gzip, byte[] body) throws Exception {
+        HttpResponse.BodySubscriber<ResponseParser> decoder = BodyDecoder.JSON.apply(info(gzip));
+        decoder.onSubscribe(new Subscription());
+        decoder.onNext(List.of(ByteBuffer.wrap(body)));
+        decoder.onComplete();
+        return decoder.getBody().toCompletableFuture().get();
+    }
+
+    private static byte[] run(boolean gzip, List<List<ByteBuffer>> items) throws Exception {
+        BodyDecoder<byte[]> decoder = decoder(gzip);
+        decoder.onSubscribe(new Subscription());
+        for (List<ByteBuffer> item : items) decoder.onNext(item);
+        decoder.onComplete();
+        return body(decoder);
+    }
+
+    private static byte[] body(BodyDecoder<byte[]> decoder) throws Exception {
+        CompletableFuture<byte[]> f = decoder.getBody().toCompletableFuture();
+        assertTrue(f.isDone());
+        return f.get();
+    }
+
+    private static BodyDecoder<byte[]> decoder(boolean gzip) {
+        return (BodyDecoder<byte[]>) BodyDecoder.BYTES.apply(info(gzip));
+    }
+
+    private static HttpResponse.ResponseInfo info(boolean gzip) {
+        HttpHeaders headers = HttpHeaders.of(gzip ? Map.of("Content-Encoding", List.of("gzip")) : Map.of(),
+                (k, v) -> true);
+        return new HttpResponse.ResponseInfo() {
+            @Override
+            public int statusCode() {
+                return 200;
+            }
+
+            @Override
+            public HttpHeaders headers() {
+                return headers;
+            }
+
+            @Override
+            public HttpClient.Version version() {
+                return HttpClient.Version.HTTP_1_1;
+            }
+        };
+    }
+
+    private static byte[] gzip(byte[] data, int flags) {
+        return gzip(data, flags, new byte[]{'A', 'B', 3, 0, 1, 2, 3});
+    }
+
+    /**
+     * Dựng một member gzip với các trường header tùy chọn theo {@code flags}
+     */
+    private static byte[] gzip(byte[] data, int flags, byte[] extra) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.writeBytes(new byte[]{0x1f, (byte) 0x8b, 8, (byte) flags, 0, 0, 0, 0, 0, (byte) 255});
+        if ((flags & FEXTRA) != 0) {
+            out.write(extra.length & 0xff);
+            out.write(extra.length >>> 8);
+            out.writeBytes(extra);
+        }
+        if ((flags & FNAME) != 0) out.writeBytes("body.json\0".getBytes(StandardCharsets.ISO_8859_1));
+        if ((flags & FCOMMENT) != 0) out.writeBytes("chú thích\0".getBytes(StandardCharsets.ISO_8859_1));
+        if ((flags & FHCRC) != 0) {
+            CRC32 headerCrc = new CRC32();
+            headerCrc.update(out.toByteArray());
+            out.write((int) headerCrc.getValue() & 0xff);
+            out.write((int) (headerCrc.getValue() >>> 8) & 0xff);
+        }
+
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        deflater.setInput(data);
+        deflater.finish();
+        byte[] buf = new byte[4096];
+        while (!deflater.finished()) out.write(buf, 0, deflater.deflate(buf));
+        deflater.end();
+
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        le32(out, crc.getValue());
+        le32(out, data.length);
+        return out.toByteArray();
+    }
+
+    private static void le32(ByteArrayOutputStream out, long value) {
+        for (int i = 0; i < 4; i++) out.write((int) (value >>> (8 * i)) & 0xff);
+    }
+
+    private static final class Subscription implements Flow.Subscription {
+        boolean cancelled;
+
+        @Override
+        public void request(long n) {
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+    }
+}
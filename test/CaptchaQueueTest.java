@@ -0,0 +1,99 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.CookieHandler;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class CaptchaQueueTest {
+
+    private static final Account SAVED = new Account("saved", "p");
+    private static final Account NEW = new Account("new", "p");
+
+    private StubServer stub;
+    private ApiClient api;
+    private CaptchaQueue<Integer> queue;
+
+    @BeforeEach
+    void start() throws Exception {
+        stub = new StubServer(StubServer.Options.fromSystemProperties().withPort(0));
+        stub.start();
+        api = new ApiClient(ApiClient.Options.fromSystemProperties().withBaseUrl(stub.baseUrl()));
+        RunListener quiet = new RunListener() {
+            @Override
+            public void log(Account account, String message) {
+            }
+
+            @Override
+            public void status(Account account, String message) {
+            }
+
+            @Override
+            public void step(Account account, Step step) {
+            }
+        };
+        queue = new CaptchaQueue<>(new MfoApi(api, quiet), bytes -> bytes.length, null);
+        queue.plan(List.of(SAVED, NEW), account -> account != SAVED);
+    }
+
+    @AfterEach
+    void stop() {
+        api.shutdown();
+        stub.close();
+    }
+
+    @Test
+    void keepsJarOnlyForAccountsThatNeedCaptcha() {
+        assertNotSame(queue.cookies(SAVED), queue.cookies(SAVED));
+        assertSame(queue.cookies(NEW), queue.cookies(NEW));
+    }
+
+    @Test
+    void releaseDropsJar() {
+        CookieHandler jar = queue.cookies(NEW);
+        queue.release(NEW);
+        assertNotSame(jar, queue.cookies(NEW));
+    }
+
+    @Test
+    void accountWithoutJarSolvedWithItsOwnFetch() throws Exception {
+        CompletableFuture<String> answer = CompletableFuture.supplyAsync(() -> {
+            try {
+                return queue.solve(SAVED, () -> new byte[7]);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        CaptchaQueue.Ready<Integer> ready;
+        while ((ready = queue.poll()) == null) Thread.sleep(5);
+        assertEquals(7, ready.image());
+        ready.submit("1234");
+        assertEquals("1234", answer.get(2, TimeUnit.SECONDS));
+        // không giữ lại jar cho account đã giải bằng fetch riêng
+        assertNotSame(queue.cookies(SAVED), queue.cookies(SAVED));
+    }
+
+    @Test
+    void prefetchedCaptchaUsesQueueJar() throws Exception {
+        queue.cookies(NEW);
+        CompletableFuture<String> answer = CompletableFuture.supplyAsync(() -> {
+            try {
+                return queue.solve(NEW, () -> {
+                    throw new AssertionError("phải dùng captcha đã tải trước");
+                });
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        CaptchaQueue.Ready<Integer> ready;
+        while ((ready = queue.poll()) == null) Thread.sleep(5);
+        ready.submit("5678");
+        assertEquals("5678", answer.get(2, TimeUnit.SECONDS));
+    }
+}
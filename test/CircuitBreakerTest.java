@@ -0,0 +1,127 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CircuitBreakerTest {
+
+    private static final String SLOW = "/webapi/task/getTaskPrize";
+    private static final String FAST = "/webapi/login/getCaptcha";
+    private static final long OPEN_MS = 100;
+
+    private StubServer stub;
+    private ApiClient api;
+
+    @BeforeEach
+    void start() throws Exception {
+        System.setProperty("mfo.stub.latencyMs.getTaskPrize", "5000");
+        stub = new StubServer(StubServer.Options.fromSystemProperties().withPort(0));
+        stub.start();
+        api = new ApiClient(new ApiClient.Options(stub.baseUrl(), Duration.ofSeconds(2), Duration.ofSeconds(10), 2, 30,
+                0, true, new RetryPolicy(1, Duration.ZERO, Duration.ZERO, Duration.ofSeconds(10), Set.of()),
+                new CircuitBreaker.Options(10, 1, 0.5, Duration.ofMillis(OPEN_MS)), new RateLimiter(0, 1)));
+    }
+
+    @AfterEach
+    void stop() {
+        System.clearProperty("mfo.stub.latencyMs.getTaskPrize");
+        api.shutdown();
+        stub.close();
+    }
+
+    @Test
+    void releasedProbeLetsAnotherCallThrough() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker(new CircuitBreaker.Options(10, 1, 0.5, Duration.ofMillis(OPEN_MS)));
+        breaker.record(false);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        Thread.sleep(OPEN_MS + 20);
+
+        assertEquals(0, breaker.tryAcquire());
+        assertTrue(breaker.tryAcquire() > 0, "chỉ một call thử");
+        breaker.release();
+        assertEquals(0, breaker.tryAcquire());
+        breaker.record(true);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+    }
+
+    @Test
+    void releaseOutsideHalfOpenIsNoop() {
+        CircuitBreaker breaker = new CircuitBreaker(new CircuitBreaker.Options(10, 1, 0.5, Duration.ofMillis(OPEN_MS)));
+        assertEquals(0, breaker.tryAcquire());
+        breaker.release();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+
+        breaker.record(false);
+        breaker.release();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+    }
+
+    @Test
+    void cancelledAsyncProbeDoesNotBlockLaterCalls() throws Exception {
+        openAndWait();
+
+        CompletableFuture<?> probe = api.postAsync(SLOW, body(), null, null, null);
+        Thread.sleep(200); // probe đã gửi đi, đang chờ response chậm
+        assertEquals(CircuitBreaker.State.HALF_OPEN, api.breaker().state());
+        probe.cancel(true);
+
+        assertEquals(200, api.getAsync(FAST, null, null).get(3, TimeUnit.SECONDS).statusCode());
+        assertEquals(CircuitBreaker.State.CLOSED, api.breaker().state());
+    }
+
+    @Test
+    void probeCancelledWhileWaitingForPermitIsNotHeld() throws Exception {
+        api.breaker().record(false);
+        // chờ breaker trong lúc OPEN rồi bị hủy: không được lấy mất lượt thử về sau
+        CompletableFuture<?> waiting = api.postAsync(SLOW, body(), null, null, null);
+        waiting.cancel(true);
+        Thread.sleep(OPEN_MS * 2);
+
+        assertEquals(200, api.getAsync(FAST, null, null).get(3, TimeUnit.SECONDS).statusCode());
+    }
+
+    @Test
+    void interruptedBlockingProbeDoesNotBlockLaterCalls() throws Exception {
+        openAndWait();
+
+        CountDownLatch sending = new CountDownLatch(1);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread probe = new Thread(() -> {
+            try {
+                sending.countDown();
+                api.post(SLOW, body(), null, null, null);
+            } catch (Throwable e) {
+                failure.set(e);
+            }
+        });
+        probe.start();
+        sending.await();
+        Thread.sleep(200);
+        probe.interrupt();
+        probe.join(3000);
+        assertInstanceOf(InterruptedException.class, failure.get());
+
+        assertEquals(200, api.getAsync(FAST, null, null).get(3, TimeUnit.SECONDS).statusCode());
+    }
+
+    private void openAndWait() throws InterruptedException {
+        api.breaker().record(false);
+        assertEquals(CircuitBreaker.State.OPEN, api.breaker().state());
+        Thread.sleep(OPEN_MS + 20);
+    }
+
+    private static HttpRequest.BodyPublisher body() {
+        return HttpRequest.BodyPublishers.ofString("{}");
+    }
+}
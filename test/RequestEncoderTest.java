@@ -0,0 +1,96 @@
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RequestEncoderTest {
+
+    private static final byte[] TOKEN = "\"token\":".getBytes(StandardCharsets.US_ASCII);
+
+    @Test
+    void loginBody() {
+        String body = text(RequestEncoder.login(new Account("user", "pa\"ss\\word"), "12ab").toByteArray());
+        assertEquals("{\"username\":\"user\",\"password\":\"pa\\\"ss\\\\word\",\"code\":\"12ab\",\"type\":1,\"source\":\"web\"}",
+                body);
+    }
+
+    @Test
+    void idWrittenAsNumberOnlyWhenAllDigits() {
+        Account account = new Account("u", "p");
+        assertEquals("{\"taskId\":1,\"platForm\":\"web\",\"userId\":42}",
+                text(RequestEncoder.task(new Session(account, "t", "42", null)).toByteArray()));
+        assertEquals("{\"taskId\":1,\"platForm\":\"web\",\"userId\":\"4\\\"2\"}",
+                text(RequestEncoder.task(new Session(account, "t", "4\"2", null)).toByteArray()));
+        assertEquals("{\"month\":\"202410\",\"platForm\":\"web\",\"userId\":7}",
+                text(RequestEncoder.fullPrize(new Session(account, "t", "7", null), 202410).toByteArray()));
+    }
+
+    @Test
+    void controlCharacters() {
+        assertEquals("\"\\n\\r\\t\\b\\f\\u0000\\u001f\\u0007\"", encode("\n\r\t\b\f\u0000\u001f\u0007"));
+        assertEquals("\"\u007f\"", encode("\u007f"));
+    }
+
+    @Test
+    void quotesAndBackslashes() {
+        assertEquals("\"\\\"\\\\\\\"/\"", encode("\"\\\"/"));
+    }
+
+    @Test
+    void multiByteAndNonBmp() throws CharacterCodingException {
+        String s = "Tiếng Việt é 😀 𝄞";
+        byte[] body = RequestEncoder.local().str(TOKEN, s).toByteArray();
+        assertEquals("{\"token\":\"" + s + "\"}", strictUtf8(body));
+
+        byte[] emoji = RequestEncoder.local().str(TOKEN, "😀").toByteArray();
+        assertArrayEquals(new byte[]{'"', (byte) 0xF0, (byte) 0x9F, (byte) 0x98, (byte) 0x80, '"'},
+                Arrays.copyOfRange(emoji, TOKEN.length + 1, emoji.length - 1));
+    }
+
+    @Test
+    void loneSurrogateReplaced() {
+        assertEquals("\"a?b?\"", encode("a\ud83db\ude00"));
+    }
+
+    @Test
+    void roundTripThroughParser() {
+        StringBuilder all = new StringBuilder();
+        for (char c = 0; c < 0x20; c++) all.append(c);
+        String[] values = {"plain", "q\"uote", "back\\slash", "/slash", all.toString(), "😀x𝄞", "Đăng nhập", "",
+                "x".repeat(1000) + "\"\n😀"};
+        for (String value : values) {
+            ResponseParser p = ResponseParser.parse(RequestEncoder.local().str(TOKEN, value).toByteArray());
+            assertEquals(value, p.token());
+        }
+    }
+
+    @Test
+    void detachedCopySurvivesNextEncode() {
+        RequestEncoder first = RequestEncoder.local().str(TOKEN, "first");
+        byte[] copy = first.toByteArray();
+        RequestEncoder.local().str(TOKEN, "second-and-longer");
+        assertEquals("{\"token\":\"first\"}", text(copy));
+    }
+
+    private static String encode(String value) {
+        byte[] body = RequestEncoder.local().str(TOKEN, value).toByteArray();
+        return new String(body, TOKEN.length + 1, body.length - TOKEN.length - 2, StandardCharsets.UTF_8);
+    }
+
+    private static String text(byte[] body) {
+        return new String(body, StandardCharsets.UTF_8);
+    }
+
+    private static String strictUtf8(byte[] body) throws CharacterCodingException {
+        return StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT)
+                .decode(ByteBuffer.wrap(body)).toString();
+    }
+}
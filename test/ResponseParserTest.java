@@ -0,0 +1,107 @@
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ResponseParserTest {
+
+    private static final String LOGIN = """
+            {"state":200,"msg":"\\"token\\":\\"fake\\"","data":{"tokenType":"bearer","token":"tk-1","userId":42,\
+            "info":{"token":"nested"}},"token":"outer"}""";
+
+    private static final String SIGN_IN_LIST = """
+            {"state":200,"data":{"list":[{"signDay":30,"state":1}],"extra":{"signDay":29},"signDay":7},"signDay":99}""";
+
+    @Test
+    void stateIsReadAsWholeNumber() {
+        assertEquals(2001, parse("{\"state\":2001}").state());
+        assertEquals(200, parse("{\"state\":200}").state());
+        assertEquals(200, parse("{\"state\":\"200\"}").state());
+        assertEquals(-3, parse("{\"state\":-3}").state());
+    }
+
+    @Test
+    void stateOnlyAtTopLevel() {
+        assertEquals(500, parse("{\"data\":{\"state\":200},\"state\":500}").state());
+        assertEquals(ApiState.NONE, parse("{\"data\":{\"state\":200}}").state());
+        assertEquals(ApiState.NONE, parse("{\"stateCode\":200,\"msg\":\"state\"}").state());
+    }
+
+    @Test
+    void tokenIsFirstExactKeyOutsideStrings() {
+        ResponseParser p = parse(LOGIN);
+        assertEquals(200, p.state());
+        assertEquals("tk-1", p.token());
+        assertEquals("42", p.userId());
+    }
+
+    @Test
+    void signDayOnlyDirectlyUnderData() {
+        assertEquals(7, parse(SIGN_IN_LIST).signDay());
+        assertEquals(-1, parse("{\"state\":200,\"signDay\":5}").signDay());
+    }
+
+    @Test
+    void everyChunkSplitGivesSameResult() {
+        for (String json : new String[]{LOGIN, SIGN_IN_LIST, "{\"state\":2001,\"token\":\"a\\\"b\\u00e9\"}"}) {
+            byte[] body = json.getBytes(StandardCharsets.UTF_8);
+            ResponseParser whole = ResponseParser.parse(body);
+            for (int split = 0; split <= body.length; split++) {
+                ResponseParser p = new ResponseParser();
+                p.feed(body, 0, split);
+                p.feed(body, split, body.length - split);
+                p.finish();
+                assertSame(whole, p, json + " @" + split);
+            }
+
+            ResponseParser bytes = new ResponseParser();
+            for (byte b : body) bytes.feed(new byte[]{b}, 0, 1);
+            bytes.finish();
+            assertSame(whole, bytes, json + " từng byte");
+        }
+    }
+
+    @Test
+    void numberAtEndOfBodyIsKept() {
+        ResponseParser p = new ResponseParser();
+        p.feed("{\"state\":20".getBytes(StandardCharsets.US_ASCII), 0, 11);
+        p.feed("0".getBytes(StandardCharsets.US_ASCII), 0, 1);
+        p.finish();
+        assertEquals(200, p.state());
+    }
+
+    @Test
+    void escapesInToken() {
+        ResponseParser p = parse("{\"state\":200,\"token\":\"a\\\"b\\\\c\\/d\\u0041\\n\"}");
+        assertEquals(200, p.state());
+        assertEquals("a\"b\\c/dA\n", p.token());
+    }
+
+    @Test
+    void badEscapeMakesResponseMalformed() {
+        for (String token : new String[]{"\\uZZZZ", "t\\u12", "\\u12G4x", "\\x"}) {
+            ResponseParser p = parse("{\"state\":200,\"token\":\"" + token + "\"}");
+            assertEquals(ApiState.NONE, p.state(), token);
+            assertEquals("", p.token(), token);
+        }
+    }
+
+    @Test
+    void unescape() {
+        assertEquals("é😀", ResponseParser.unescape("\\u00e9\\ud83d\\ude00"));
+        assertEquals(null, ResponseParser.unescape("abc\\"));
+        assertEquals(null, ResponseParser.unescape("\\u00"));
+    }
+
+    private static ResponseParser parse(String json) {
+        return ResponseParser.parse(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void assertSame(ResponseParser expected, ResponseParser actual, String message) {
+        assertEquals(expected.state(), actual.state(), message);
+        assertEquals(expected.signDay(), actual.signDay(), message);
+        assertEquals(expected.token(), actual.token(), message);
+        assertEquals(expected.userId(), actual.userId(), message);
+    }
+}
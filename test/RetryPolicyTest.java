@@ -0,0 +1,68 @@
+import org.junit.jupiter.api.Test;
+
+import java.net.http.HttpHeaders;
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RetryPolicyTest {
+
+    private static final String LIST = "/webapi/signIn/getSignInList";
+    private static final String LOGIN = "/webapi/login/doLogin";
+
+    private final RetryPolicy policy = new RetryPolicy(4, Duration.ofMillis(100), Duration.ofMillis(1000),
+            Duration.ofSeconds(30), Set.of(LIST));
+
+    @Test
+    void tooManyRequestsRetriedOnEveryEndpoint() {
+        assertTrue(policy.canRetry(LOGIN, 429));
+        assertTrue(policy.canRetry(LIST, 429));
+    }
+
+    @Test
+    void serverErrorRetriedOnlyWhenIdempotent() {
+        assertTrue(policy.canRetry(LIST, 503));
+        assertFalse(policy.canRetry(LOGIN, 503));
+        assertFalse(policy.canRetry(LIST, 404));
+        assertFalse(policy.canRetry(LIST, 200));
+    }
+
+    @Test
+    void retryAfterSeconds() {
+        assertEquals(3000, RetryPolicy.retryAfterMillis(headers("3")));
+        assertEquals(0, RetryPolicy.retryAfterMillis(headers("-5")));
+        assertEquals(-1, RetryPolicy.retryAfterMillis(headers("soon")));
+        assertEquals(-1, RetryPolicy.retryAfterMillis(HttpHeaders.of(Map.of(), (k, v) -> true)));
+    }
+
+    @Test
+    void retryAfterHttpDate() {
+        String at = DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now(ZoneOffset.UTC).plusSeconds(10));
+        long ms = RetryPolicy.retryAfterMillis(headers(at));
+        assertTrue(ms > 8000 && ms <= 10_000, String.valueOf(ms));
+
+        String past = DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now(ZoneOffset.UTC).minusHours(1));
+        assertEquals(0, RetryPolicy.retryAfterMillis(headers(past)));
+    }
+
+    @Test
+    void backoffNeverShorterThanRetryAfter() {
+        for (int attempt = 1; attempt <= 4; attempt++) {
+            assertTrue(policy.backoffMillis(attempt, 2500) >= 2500);
+            long jitter = policy.backoffMillis(attempt, -1);
+            assertTrue(jitter >= 0 && jitter <= 1000, String.valueOf(jitter));
+        }
+    }
+
+    private static HttpHeaders headers(String retryAfter) {
+        return HttpHeaders.of(Map.of("Retry-After", List.of(retryAfter)), (k, v) -> true);
+    }
+}
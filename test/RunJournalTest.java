@@ -0,0 +1,62 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RunJournalTest {
+
+    private static final Account ACCOUNT = new Account("user", "p");
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void openDropsOldDays() throws Exception {
+        Path file = dir.resolve("journal.log");
+        String today = MfoApi.today().toString();
+        String yesterday = MfoApi.today().minusDays(1).toString();
+        Files.write(file, List.of(yesterday + "|old|TASK|", today + "|user|SIGNIN|5"), StandardCharsets.UTF_8);
+
+        try (RunJournal journal = new RunJournal(file, 1000)) {
+            journal.open();
+            assertEquals(5, journal.signedDate(ACCOUNT));
+        }
+        assertEquals(List.of(today + "|user|SIGNIN|5"), Files.readAllLines(file, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void compactWhileOpenKeepsTodayAndAppending() throws Exception {
+        Path file = dir.resolve("journal.log");
+        String today = MfoApi.today().toString();
+        String yesterday = MfoApi.today().minusDays(1).toString();
+
+        try (RunJournal journal = new RunJournal(file, 1000)) {
+            journal.open();
+            journal.signed(ACCOUNT, 3);
+            journal.flush();
+            // dòng ngày cũ còn trong file khi daemon chạy qua đêm
+            Files.writeString(file, yesterday + "|old|TASK|\n", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+            journal.compact();
+            assertEquals(List.of(today + "|user|SIGNIN|3"), Files.readAllLines(file, StandardCharsets.UTF_8));
+
+            journal.taskDone(ACCOUNT);
+            journal.flush();
+        }
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        assertEquals(2, lines.size());
+        assertTrue(lines.contains(today + "|user|TASK|"));
+
+        try (RunJournal reopened = new RunJournal(file, 1000)) {
+            reopened.open();
+            assertTrue(reopened.finished(ACCOUNT));
+        }
+    }
+}
@@ -0,0 +1,266 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShardTest {
+
+    private static final long LEASE_MS = 300;
+
+    @TempDir
+    Path dir;
+
+    private final List<String> log = Collections.synchronizedList(new ArrayList<>());
+
+    @Test
+    void changingBeatIsAliveWhateverTheMtime() throws Exception {
+        try (Shard shard = shard("a")) {
+            shard.join();
+            Path other = workers().resolve("b");
+            for (int i = 0; i < 8; i++) {
+                // máy kia lệch giờ: mtime nằm tận hôm qua
+                Files.writeString(other, "t|" + i, StandardCharsets.UTF_8);
+                Files.setLastModifiedTime(other, FileTime.fromMillis(System.currentTimeMillis() - 86_400_000));
+                assertTrue(shard.liveWorkers().contains("b"), "nhịp " + i);
+                Thread.sleep(LEASE_MS / Shard.MISSED_BEATS);
+            }
+        }
+    }
+
+    @Test
+    void stoppedBeatExpiresAfterMissedObservations() throws Exception {
+        try (Shard shard = shard("a")) {
+            shard.join();
+            Path other = workers().resolve("b");
+            Files.writeString(other, "t|1", StandardCharsets.UTF_8);
+            // mtime ở tương lai cũng không giữ được worker đã dừng
+            Files.setLastModifiedTime(other, FileTime.fromMillis(System.currentTimeMillis() + 86_400_000));
+            assertTrue(shard.liveWorkers().contains("b"));
+            for (int i = 0; i < Shard.MISSED_BEATS; i++) {
+                Thread.sleep(LEASE_MS / Shard.MISSED_BEATS + 20);
+                shard.liveWorkers();
+            }
+            assertFalse(shard.liveWorkers().contains("b"));
+        }
+    }
+
+    @Test
+    void sameWorkerIdOfDeadProcessIsTakenOver() throws Exception {
+        Files.createDirectories(workers());
+        Files.writeString(workers().resolve("a"), "old-process|5", StandardCharsets.UTF_8);
+        try (Shard shard = shard("a")) {
+            shard.join();
+            assertTrue(log.stream().anyMatch(m -> m.contains("chờ")));
+            assertFalse(Files.readString(workers().resolve("a")).startsWith("old-process"));
+        }
+    }
+
+    @Test
+    void sameWorkerIdOfLiveProcessIsRejected() throws Exception {
+        try (Shard running = shard("a")) {
+            running.join();
+            Shard second = shard("a");
+            assertThrows(IOException.class, second::join);
+            // process bị từ chối không được xóa heartbeat của process đang chạy
+            second.close();
+            assertTrue(Files.exists(workers().resolve("a")));
+        }
+    }
+
+    // ================= CHIA ACCOUNT =================
+
+    @Test
+    void twoWorkersClaimEachAccountOnce() throws Exception {
+        List<Account> accounts = accounts(24);
+        StubServer stub = startStub();
+        ApiClient api = new ApiClient(ApiClient.Options.fromSystemProperties().withBaseUrl(stub.baseUrl()));
+        try (Shard a = shard("a", 1000, 4, true); Shard b = shard("b", 1000, 4, true)) {
+            a.join();
+            b.join();
+            CompletableFuture<BatchRunner.Summary> runA = run(a, api, accounts);
+            CompletableFuture<BatchRunner.Summary> runB = run(b, api, accounts);
+            int ranA = runA.get(30, TimeUnit.SECONDS).total();
+            int ranB = runB.get(30, TimeUnit.SECONDS).total();
+
+            assertEquals(accounts.size(), ranA + ranB);
+            assertTrue(ranA > 0 && ranB > 0, ranA + "/" + ranB);
+            assertEquals(accounts.size(), resultLines().size());
+            assertEquals(accounts.size(), new HashSet<>(resultLines()).size());
+            try (Stream<Path> done = Files.list(day().resolve("done"))) {
+                assertEquals(accounts.size(), done.count());
+            }
+            try (Stream<Path> leases = Files.list(day().resolve("leases"))) {
+                assertEquals(0, leases.count());
+            }
+
+            // báo cáo gộp đọc results/ của cả hai worker
+            Shard.Report report = a.report();
+            assertEquals(accounts.size(), report.success());
+            assertEquals(Set.of("a", "b"), report.byWorker().keySet());
+            assertEquals(ranA, report.byWorker().get("a"));
+            assertEquals(ranB, report.byWorker().get("b"));
+        } finally {
+            api.shutdown();
+            stub.close();
+            clearStub();
+        }
+    }
+
+    @Test
+    void ownerIsStableAndOnlyMovesWhenItsWorkerLeaves() {
+        NavigableMap<Long, String> two = new TreeMap<>();
+        NavigableMap<Long, String> three = new TreeMap<>();
+        for (String w : List.of("a", "b", "c")) {
+            for (int i = 0; i < 64; i++) {
+                if (!w.equals("c")) two.put(Shard.hash(w + "#" + i), w);
+                three.put(Shard.hash(w + "#" + i), w);
+            }
+        }
+        for (Account account : accounts(200)) {
+            String before = Shard.owner(three, account.username());
+            String after = Shard.owner(two, account.username());
+            assertEquals(before, Shard.owner(three, account.username()));
+            // mất worker c: chỉ account của c đổi chủ
+            if (!before.equals("c")) assertEquals(before, after, account.username());
+        }
+    }
+
+    @Test
+    void stoppedWorkersAccountsAreTakenOver() throws Exception {
+        List<Account> accounts = accounts(6);
+        // worker b đã chết: heartbeat đứng yên, còn giữ lease thế hệ 0 của mọi account
+        Files.createDirectories(workers());
+        Files.createDirectories(day().resolve("leases"));
+        Files.writeString(workers().resolve("b"), "dead|7", StandardCharsets.UTF_8);
+        for (Account account : accounts) {
+            Files.writeString(day().resolve("leases").resolve(Shard.key(account.username()) + "#0"), "b",
+                    StandardCharsets.UTF_8);
+        }
+
+        StubServer stub = startStub();
+        ApiClient api = new ApiClient(ApiClient.Options.fromSystemProperties().withBaseUrl(stub.baseUrl()));
+        try (Shard a = shard("a", LEASE_MS, 16, true)) {
+            a.join();
+            BatchRunner.Summary summary = run(a, api, accounts).get(30, TimeUnit.SECONDS);
+
+            assertEquals(accounts.size(), summary.success());
+            assertEquals(accounts.size(), log.stream().filter(m -> m.startsWith("♻️ Nhận lại")).count());
+            assertEquals(List.of("a"), List.copyOf(a.report().byWorker().keySet()));
+            try (Stream<Path> leases = Files.list(day().resolve("leases"))) {
+                assertEquals(0, leases.count(), "lease thế hệ cũ của worker đã chết cũng được dọn");
+            }
+        } finally {
+            api.shutdown();
+            stub.close();
+            clearStub();
+        }
+    }
+
+    @Test
+    void reportKeepsLatestResultPerAccount() throws Exception {
+        Path results = day().resolve("results");
+        Files.createDirectories(results);
+        Files.write(results.resolve("a.txt"), List.of("u1|FAIL|a|100", "u2|OK|a|100", "hỏng"), StandardCharsets.UTF_8);
+        Files.write(results.resolve("b.txt"), List.of("u1|OK|b|200", "u3|FAIL|b|150", "u4|OK|b|"),
+                StandardCharsets.UTF_8);
+
+        Shard.Report report = shard("a").report();
+        assertEquals(2, report.success());
+        assertEquals(1, report.failed());
+        assertEquals(List.of("u3"), report.failedAccounts());
+        assertEquals(1, report.byWorker().get("a"));
+        assertEquals(2, report.byWorker().get("b"));
+    }
+
+    private CompletableFuture<BatchRunner.Summary> run(Shard shard, ApiClient api, List<Account> accounts) {
+        RunListener quiet = new RunListener() {
+            @Override
+            public void log(Account account, String message) {
+            }
+
+            @Override
+            public void status(Account account, String message) {
+            }
+
+            @Override
+            public void step(Account account, Step step) {
+            }
+        };
+        CaptchaSolver solver = (account, fetchImage) -> {
+            fetchImage.call();
+            return "1234";
+        };
+        BatchRunner runner = new BatchRunner(api, solver, quiet, null, null, null,
+                BatchRunner.Options.fromSystemProperties().withParallelism(4));
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return shard.runAll(runner, accounts, null);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    private static StubServer startStub() throws IOException {
+        System.setProperty("mfo.rate.global", "0");
+        System.setProperty("mfo.rate.doLogin", "0");
+        StubServer stub = new StubServer(StubServer.Options.fromSystemProperties().withPort(0));
+        stub.start();
+        return stub;
+    }
+
+    private static void clearStub() {
+        System.clearProperty("mfo.rate.global");
+        System.clearProperty("mfo.rate.doLogin");
+    }
+
+    private static List<Account> accounts(int n) {
+        return IntStream.range(0, n).mapToObj(i -> new Account("user" + i, "p")).toList();
+    }
+
+    private List<String> resultLines() throws IOException {
+        List<String> usernames = new ArrayList<>();
+        try (Stream<Path> files = Files.list(day().resolve("results"))) {
+            for (Path file : files.toList()) {
+                for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) usernames.add(line.split("\\|")[0]);
+            }
+        }
+        return usernames;
+    }
+
+    private Shard shard(String worker) {
+        return shard(worker, LEASE_MS, 16, false);
+    }
+
+    private Shard shard(String worker, long leaseMs, int chunk, boolean awaitAll) {
+        return new Shard(new Shard.Options(dir, worker, 8, leaseMs, chunk, awaitAll), log::add);
+    }
+
+    private Path day() {
+        return dir.resolve(MfoApi.today().toString());
+    }
+
+    private Path workers() {
+        return day().resolve("workers");
+    }
+}
@@ -0,0 +1,49 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class StubServerTest {
+
+    private StubServer stub;
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @BeforeEach
+    void start() throws Exception {
+        stub = new StubServer(StubServer.Options.fromSystemProperties().withPort(0));
+        stub.start();
+    }
+
+    @AfterEach
+    void stop() {
+        stub.close();
+    }
+
+    @Test
+    void nonNumericDateNoAnsweredWithFailedState() throws Exception {
+        ResponseParser login = post("/webapi/login/doLogin", "{\"username\":\"u\",\"password\":\"p\",\"code\":\"1234\"}");
+        String userId = login.userId();
+
+        for (String dateNo : new String[]{"\"abc\"", "\"\"", "\"99999999999\""}) {
+            ResponseParser res = post("/webapi/signIn/doSignin", "{\"userId\":" + userId + ",\"dateNo\":" + dateNo + "}");
+            assertEquals(ApiState.FAILED, res.state(), dateNo);
+        }
+    }
+
+    private ResponseParser post(String path, String json) throws Exception {
+        HttpRequest req = HttpRequest.newBuilder(URI.create(stub.baseUrl() + path))
+                .timeout(Duration.ofSeconds(2))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+        HttpResponse<byte[]> res = client.send(req, HttpResponse.BodyHandlers.ofByteArray());
+        return ResponseParser.parse(res.body());
+    }
+}
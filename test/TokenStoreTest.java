@@ -0,0 +1,43 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenStoreTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void failedFlushLeavesNoTempFile() throws Exception {
+        // đích là thư mục không rỗng → move thất bại
+        Path file = dir.resolve("sessions.txt");
+        Files.createDirectories(file.resolve("x"));
+        TokenStore tokens = new TokenStore(file, Duration.ofHours(1));
+        tokens.put(new Session(new Account("user", "p"), "secret", "1", null));
+        tokens.flush();
+
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(1, files.count());
+        }
+        assertTrue(Files.isDirectory(file));
+    }
+
+    @Test
+    void flushRoundTrip() {
+        Path file = dir.resolve("sessions.txt");
+        TokenStore tokens = new TokenStore(file, Duration.ofHours(1));
+        tokens.put(new Session(new Account("user", "p"), "secret", "1", null));
+        tokens.flush();
+
+        TokenStore loaded = new TokenStore(file, Duration.ofHours(1));
+        loaded.load();
+        assertTrue(loaded.has("user"));
+    }
+}